@@ -0,0 +1,352 @@
+package com.sam.trees;
+
+import java.util.Arrays;
+
+/**
+ * Ternary search tree with conditional splaying, storing its nodes in parallel primitive arrays instead of node objects.
+ * A node is an index into the arrays and index 0 stands for null, so tou(0) is always 0.
+ * The restructuring is the same as in SelfAdjustingTernarySearchTree, rotations only swap indices.
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+public class ArrayTernarySearchTree {
+
+	private static final int NIL = 0;
+
+	private char[] data;
+	private int[] left;
+	private int[] right;
+	private int[] eq;
+
+	//Stores number of access to the node.
+	private int[] alpha;
+
+	//Stores number of access to the subtrees of the node, tou(i) = alpha(i) + tou(iL) + tou(iR).
+	private int[] tou;
+
+	//Bitset of the nodes at which a key ends.
+	private long[] leaf;
+
+	//Number of slots used, including the null slot.
+	private int size = 1;
+
+	private int root = NIL;
+
+	public ArrayTernarySearchTree(){
+		this(1024);
+	}
+
+	public ArrayTernarySearchTree(int initialCapacity){
+		int capacity = Math.max(2, initialCapacity + 1);
+		data = new char[capacity];
+		left = new int[capacity];
+		right = new int[capacity];
+		eq = new int[capacity];
+		alpha = new int[capacity];
+		tou = new int[capacity];
+		leaf = new long[(capacity + 63) >>> 6];
+	}
+
+	/*
+	 * Number of nodes in the tree.
+	 */
+	public int nodeCount(){
+		return size - 1;
+	}
+
+	private int newNode(char c){
+		if(size == data.length){
+			int capacity = data.length * 2;
+			data = Arrays.copyOf(data, capacity);
+			left = Arrays.copyOf(left, capacity);
+			right = Arrays.copyOf(right, capacity);
+			eq = Arrays.copyOf(eq, capacity);
+			alpha = Arrays.copyOf(alpha, capacity);
+			tou = Arrays.copyOf(tou, capacity);
+			leaf = Arrays.copyOf(leaf, (capacity + 63) >>> 6);
+		}
+		data[size] = c;
+		return size++;
+	}
+
+	private boolean isLeaf(int node){
+		return (leaf[node >>> 6] & (1L << node)) != 0;
+	}
+
+	private void setLeaf(int node){
+		leaf[node >>> 6] |= 1L << node;
+	}
+
+	public void insert(String key){
+		if(key.length() == 0){
+			return;
+		}
+		if(root == NIL){
+			root = newNode(key.charAt(0));
+		}
+
+		int node = root;
+		int pos = 0;
+		while(true){
+			char c = key.charAt(pos);
+			if(c < data[node]){
+				if(left[node] == NIL){
+					int child = newNode(c);
+					left[node] = child;
+				}
+				node = left[node];
+			}else if(c > data[node]){
+				if(right[node] == NIL){
+					int child = newNode(c);
+					right[node] = child;
+				}
+				node = right[node];
+			}else{
+				if(pos == key.length()-1){
+					setLeaf(node);
+					return;
+				}
+				pos++;
+				if(eq[node] == NIL){
+					int child = newNode(key.charAt(pos));
+					eq[node] = child;
+				}
+				node = eq[node];
+			}
+		}
+	}
+
+	/*
+	 * Searches the key without splaying the nodes during the traversal.
+	 */
+	public boolean searchWithoutSplaying(String key){
+		if(key.length() == 0){
+			return true;
+		}
+
+		int node = root;
+		int pos = 0;
+		while(node != NIL){
+			char c = key.charAt(pos);
+			if(c < data[node]){
+				node = left[node];
+			}else if(c > data[node]){
+				node = right[node];
+			}else{
+				if(pos == key.length()-1){
+					return isLeaf(node);
+				}
+				pos++;
+				node = eq[node];
+			}
+		}
+		return false;
+	}
+
+	//Kind of step taken from a node on the search path, as in SelfAdjustingTernarySearchTree.
+	private static final byte STOP = 0;
+	private static final byte LEFT_LEFT = 1;
+	private static final byte LEFT_RIGHT = 2;
+	private static final byte LEFT = 3;
+	private static final byte RIGHT_LEFT = 4;
+	private static final byte RIGHT_RIGHT = 5;
+	private static final byte RIGHT = 6;
+	private static final byte EQUAL = 7;
+
+	private int[] pathNodes = new int[32];
+	private byte[] pathSteps = new byte[32];
+
+	private void push(int depth, int node, byte step){
+		if(depth == pathNodes.length){
+			pathNodes = Arrays.copyOf(pathNodes, depth*2);
+			pathSteps = Arrays.copyOf(pathSteps, depth*2);
+		}
+		pathNodes[depth] = node;
+		pathSteps[depth] = step;
+	}
+
+	/*
+	 * Searches the key with conditional rotations. See SelfAdjustingTernarySearchTree.search for the definition of psi.
+	 */
+	public boolean search(String key){
+		if(key.length() == 0){
+			return false;
+		}
+
+		boolean found = false;
+		int node = root;
+		int pos = 0;
+		int depth = 0;
+
+		while(node != NIL){
+			char c = key.charAt(pos);
+			if(c < data[node]){
+				int l = left[node];
+				if(l == NIL){
+					push(depth++, node, STOP);
+					break;
+				}
+				if(c < data[l]){
+					push(depth++, node, LEFT_LEFT);
+					node = left[l];
+				}else if(c > data[l]){
+					push(depth++, node, LEFT_RIGHT);
+					node = right[l];
+				}else{
+					push(depth++, node, LEFT);
+					node = l;
+				}
+			}else if(c > data[node]){
+				int r = right[node];
+				if(r == NIL){
+					push(depth++, node, STOP);
+					break;
+				}
+				if(c < data[r]){
+					push(depth++, node, RIGHT_LEFT);
+					node = left[r];
+				}else if(c > data[r]){
+					push(depth++, node, RIGHT_RIGHT);
+					node = right[r];
+				}else{
+					push(depth++, node, RIGHT);
+					node = r;
+				}
+			}else{
+				if(pos+1 != key.length()){
+					push(depth++, node, EQUAL);
+					pos++;
+					node = eq[node];
+				}else{
+					push(depth++, node, STOP);
+					found = isLeaf(node);
+					break;
+				}
+			}
+		}
+
+		int child = NIL;
+		while(depth > 0){
+			depth--;
+			int current = pathNodes[depth];
+			alpha[current] = SelfAdjustingTernarySearchTree.saturatedAdd(alpha[current], 1);
+			tou[current] = SelfAdjustingTernarySearchTree.saturatedAdd(tou[current], 1);
+
+			switch(pathSteps[depth]){
+			case LEFT_LEFT:
+				left[left[current]] = child;
+				if(child != NIL && 2L*tou[child] - tou[right[child]] - tou[left[current]] > 0){
+					left[current] = rightRotate(left[current]);
+					updateTou(right[left[current]]);
+					updateTou(left[current]);
+				}
+				break;
+			case LEFT_RIGHT:
+				right[left[current]] = child;
+				if(child != NIL && 2L*tou[child] - tou[left[child]] - tou[left[current]] > 0){
+					left[current] = leftRotate(left[current]);
+					updateTou(left[left[current]]);
+					updateTou(left[current]);
+				}
+				break;
+			case LEFT:
+				left[current] = child;
+				if(2L*tou[child] - tou[right[child]] - tou[current] > 0){
+					int rotated = rightRotate(current);
+					updateTou(current);
+					updateTou(rotated);
+					current = rotated;
+				}
+				break;
+			case RIGHT_LEFT:
+				left[right[current]] = child;
+				if(child != NIL && 2L*tou[child] - tou[right[child]] - tou[right[current]] > 0){
+					right[current] = rightRotate(right[current]);
+					updateTou(right[right[current]]);
+					updateTou(right[current]);
+				}
+				break;
+			case RIGHT_RIGHT:
+				right[right[current]] = child;
+				if(child != NIL && 2L*tou[child] - tou[left[child]] - tou[right[current]] > 0){
+					right[current] = leftRotate(right[current]);
+					updateTou(left[right[current]]);
+					updateTou(right[current]);
+				}
+				break;
+			case RIGHT:
+				right[current] = child;
+				if(2L*tou[child] - tou[left[child]] - tou[current] > 0){
+					int rotated = leftRotate(current);
+					updateTou(current);
+					updateTou(rotated);
+					current = rotated;
+				}
+				break;
+			case EQUAL:
+				eq[current] = child;
+				break;
+			default:
+				break;
+			}
+			child = current;
+		}
+		if(child != NIL){
+			root = child;
+		}
+
+		return found;
+	}
+
+	private void updateTou(int node){
+		tou[node] = SelfAdjustingTernarySearchTree.saturatedAdd(alpha[node], (long)tou[left[node]] + tou[right[node]]);
+	}
+
+	/*
+	 * Utility method to perform left rotation at the given node.
+	 */
+	private int leftRotate(int x){
+		int y = right[x];
+		right[x] = left[y];
+		left[y] = x;
+		return y;
+	}
+
+	/*
+	 * Utility method to perform right rotation at the given node.
+	 */
+	private int rightRotate(int x){
+		int y = left[x];
+		left[x] = right[y];
+		right[y] = x;
+		return y;
+	}
+
+	public static void main(String args[]){
+		ArrayTernarySearchTree ternarySearchTree = new ArrayTernarySearchTree(16);
+		ternarySearchTree.insert("font");
+		ternarySearchTree.insert("ask");
+		ternarySearchTree.insert("an");
+		ternarySearchTree.insert("fork");
+		ternarySearchTree.insert("for");
+		ternarySearchTree.insert("rest");
+		ternarySearchTree.insert("cap");
+		ternarySearchTree.insert("or");
+
+		System.out.println("Nodes - "+ternarySearchTree.nodeCount());
+		System.out.println("Search cap "+ternarySearchTree.search("cap"));
+		System.out.println("Search cap "+ternarySearchTree.search("cap"));
+		System.out.println("Search rest "+ternarySearchTree.search("rest"));
+		System.out.println("Search tap "+ternarySearchTree.search("tap"));
+		System.out.println("Search for "+ternarySearchTree.search("for"));
+		System.out.println("Search fo "+ternarySearchTree.search("fo"));
+
+		System.out.println("Searching the strings after splaying.");
+		System.out.println("Search font - "+ternarySearchTree.searchWithoutSplaying("font"));
+		System.out.println("Search ask - "+ternarySearchTree.searchWithoutSplaying("ask"));
+		System.out.println("Search an - "+ternarySearchTree.searchWithoutSplaying("an"));
+		System.out.println("Search fork - "+ternarySearchTree.searchWithoutSplaying("fork"));
+		System.out.println("Search cap - "+ternarySearchTree.searchWithoutSplaying("cap"));
+		System.out.println("Search or - "+ternarySearchTree.searchWithoutSplaying("or"));
+	}
+}
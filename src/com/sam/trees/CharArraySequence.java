@@ -0,0 +1,47 @@
+package com.sam.trees;
+
+/**
+ * Reusable CharSequence view of a range of a char array, so that keys held in char arrays can be searched without creating a String.
+ * The view reads the array directly, it is not a copy.
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+final class CharArraySequence implements CharSequence {
+
+	private char[] chars;
+	private int offset;
+	private int length;
+
+	/*
+	 * Points the view to length chars of the array starting at offset and returns it.
+	 */
+	CharArraySequence reset(char[] chars, int offset, int length){
+		if(offset < 0 || length < 0 || offset > chars.length - length){
+			throw new IndexOutOfBoundsException("Range ["+offset+", "+offset+"+"+length+") is out of bounds for length "+chars.length);
+		}
+		this.chars = chars;
+		this.offset = offset;
+		this.length = length;
+		return this;
+	}
+
+	public int length(){
+		return length;
+	}
+
+	public char charAt(int index){
+		if(index < 0 || index >= length){
+			throw new IndexOutOfBoundsException("Index "+index+" is out of bounds for length "+length);
+		}
+		return chars[offset + index];
+	}
+
+	public CharSequence subSequence(int start, int end){
+		return toString().substring(start, end);
+	}
+
+	@Override
+	public String toString(){
+		return new String(chars, offset, length);
+	}
+}
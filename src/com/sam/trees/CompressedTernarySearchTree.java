@@ -0,0 +1,437 @@
+package com.sam.trees;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Queue;
+
+/**
+ * Ternary search tree with conditional rotations in which chains of nodes having only an eq child are compressed into a single node.
+ * A node matches its head character like any other node and then the run of characters in its tail, before the search continues
+ * in its eq subtree. Only the head character takes part in the BST of its level, so rotations and the alpha/tou bookkeeping
+ * work on the head exactly as in SelfAdjustingTernarySearchTree. A node is split when an inserted key diverges from its tail or ends inside it.
+ * Keys with long unique suffixes, like URLs, then need one node per suffix instead of one per character.
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+public class CompressedTernarySearchTree {
+	class TernaryTreeNode{
+		char data;
+
+		//Characters following data before the eq subtree, null if there are none.
+		char[] tail;
+
+		//Whether a key ends after the last character of the tail.
+		boolean isLeaf;
+
+		int alpha;
+		int tou;
+		TernaryTreeNode left, right, eq;
+
+		TernaryTreeNode(char data, char[] tail){
+			this.data = data;
+			this.tail = tail;
+		}
+
+		int tailLength(){
+			return tail == null ? 0 : tail.length;
+		}
+
+		public String toString(){
+			return "["+data+(tail == null ? "" : new String(tail))+"]";
+		}
+	}
+
+	private TernaryTreeNode root;
+
+	/*
+	 * Creates a node holding the characters of the text from pos to its end.
+	 */
+	private TernaryTreeNode newSegment(CharSequence data, int pos){
+		char[] tail = null;
+		if(pos+1 < data.length()){
+			tail = new char[data.length() - pos - 1];
+			for(int i = 0; i < tail.length; i++){
+				tail[i] = data.charAt(pos + 1 + i);
+			}
+		}
+		TernaryTreeNode node = new TernaryTreeNode(data.charAt(pos), tail);
+		node.isLeaf = true;
+		return node;
+	}
+
+	/*
+	 * Number of characters of the tail of the node matching the text from pos.
+	 */
+	private static int matchTail(TernaryTreeNode node, CharSequence data, int pos){
+		int length = Math.min(node.tailLength(), data.length() - pos);
+		int matched = 0;
+		while(matched < length && node.tail[matched] == data.charAt(pos + matched)){
+			matched++;
+		}
+		return matched;
+	}
+
+	/*
+	 * Splits the node after the first matched characters of its tail. The rest of the tail moves to a new eq child with the old eq subtree.
+	 * The new node is the only node of its level and is reached by every search that passed through the whole segment,
+	 * so it starts with the counts of the node.
+	 */
+	private void split(TernaryTreeNode node, int matched){
+		char[] rest = matched+1 < node.tail.length ? Arrays.copyOfRange(node.tail, matched+1, node.tail.length) : null;
+		TernaryTreeNode child = new TernaryTreeNode(node.tail[matched], rest);
+		child.isLeaf = node.isLeaf;
+		child.eq = node.eq;
+		child.alpha = node.alpha;
+		child.tou = node.alpha;
+
+		node.tail = matched == 0 ? null : Arrays.copyOf(node.tail, matched);
+		node.isLeaf = false;
+		node.eq = child;
+	}
+
+	public void insert(CharSequence data){
+		if(data.length() == 0){
+			return;
+		}
+		if(root == null){
+			root = newSegment(data, 0);
+			return;
+		}
+
+		TernaryTreeNode node = root;
+		int pos = 0;
+		while(true){
+			char c = data.charAt(pos);
+			if(c < node.data){
+				if(node.left == null){
+					node.left = newSegment(data, pos);
+					return;
+				}
+				node = node.left;
+			}else if(c > node.data){
+				if(node.right == null){
+					node.right = newSegment(data, pos);
+					return;
+				}
+				node = node.right;
+			}else{
+				int matched = matchTail(node, data, pos+1);
+				if(matched < node.tailLength()){
+					split(node, matched);
+				}
+				pos += 1 + matched;
+				if(pos == data.length()){
+					node.isLeaf = true;
+					return;
+				}
+				if(node.eq == null){
+					node.eq = newSegment(data, pos);
+					return;
+				}
+				node = node.eq;
+			}
+		}
+	}
+
+	/*
+	 * Searches the text without modifying the tree.
+	 */
+	public boolean searchWithoutSplaying(CharSequence data){
+		if(data.length() == 0){
+			return true;
+		}
+
+		TernaryTreeNode node = root;
+		int pos = 0;
+		while(node != null){
+			char c = data.charAt(pos);
+			if(c < node.data){
+				node = node.left;
+			}else if(c > node.data){
+				node = node.right;
+			}else{
+				int tailLength = node.tailLength();
+				if(matchTail(node, data, pos+1) < tailLength){
+					return false;
+				}
+				pos += 1 + tailLength;
+				if(pos == data.length()){
+					return node.isLeaf;
+				}
+				node = node.eq;
+			}
+		}
+		return false;
+	}
+
+	//Kind of step taken from a node on the search path, as in SelfAdjustingTernarySearchTree.
+	private static final byte STOP = 0;
+	private static final byte LEFT_LEFT = 1;
+	private static final byte LEFT_RIGHT = 2;
+	private static final byte LEFT = 3;
+	private static final byte RIGHT_LEFT = 4;
+	private static final byte RIGHT_RIGHT = 5;
+	private static final byte RIGHT = 6;
+	private static final byte EQUAL = 7;
+
+	private TernaryTreeNode[] pathNodes = new TernaryTreeNode[32];
+	private byte[] pathSteps = new byte[32];
+
+	private void push(int depth, TernaryTreeNode node, byte step){
+		if(depth == pathNodes.length){
+			pathNodes = Arrays.copyOf(pathNodes, depth*2);
+			pathSteps = Arrays.copyOf(pathSteps, depth*2);
+		}
+		pathNodes[depth] = node;
+		pathSteps[depth] = step;
+	}
+
+	/*
+	 * Searches the text with conditional rotations. See SelfAdjustingTernarySearchTree.search for the definition of psi.
+	 * A search which matches the head of a node but not its tail stops at the node like a search falling off the tree.
+	 */
+	public boolean search(CharSequence data){
+		if(data.length() == 0){
+			return false;
+		}
+
+		boolean found = false;
+		TernaryTreeNode node = root;
+		int pos = 0;
+		int depth = 0;
+
+		while(node != null){
+			char c = data.charAt(pos);
+			if(c < node.data){
+				TernaryTreeNode left = node.left;
+				if(left == null){
+					push(depth++, node, STOP);
+					break;
+				}
+				if(c < left.data){
+					push(depth++, node, LEFT_LEFT);
+					node = left.left;
+				}else if(c > left.data){
+					push(depth++, node, LEFT_RIGHT);
+					node = left.right;
+				}else{
+					push(depth++, node, LEFT);
+					node = left;
+				}
+			}else if(c > node.data){
+				TernaryTreeNode right = node.right;
+				if(right == null){
+					push(depth++, node, STOP);
+					break;
+				}
+				if(c < right.data){
+					push(depth++, node, RIGHT_LEFT);
+					node = right.left;
+				}else if(c > right.data){
+					push(depth++, node, RIGHT_RIGHT);
+					node = right.right;
+				}else{
+					push(depth++, node, RIGHT);
+					node = right;
+				}
+			}else{
+				int tailLength = node.tailLength();
+				if(matchTail(node, data, pos+1) < tailLength){
+					push(depth++, node, STOP);
+					break;
+				}
+				pos += 1 + tailLength;
+				if(pos == data.length()){
+					push(depth++, node, STOP);
+					found = node.isLeaf;
+					break;
+				}
+				push(depth++, node, EQUAL);
+				node = node.eq;
+			}
+		}
+
+		TernaryTreeNode child = null;
+		while(depth > 0){
+			depth--;
+			TernaryTreeNode current = pathNodes[depth];
+			pathNodes[depth] = null;
+			current.alpha = SelfAdjustingTernarySearchTree.saturatedAdd(current.alpha, 1);
+			current.tou = SelfAdjustingTernarySearchTree.saturatedAdd(current.tou, 1);
+
+			switch(pathSteps[depth]){
+			case LEFT_LEFT:
+				current.left.left = child;
+				if(child != null && 2L*tou(child) - tou(child.right) - tou(current.left) > 0){
+					current.left = rightRotate(current.left);
+					updateTou(current.left.right);
+					updateTou(current.left);
+				}
+				break;
+			case LEFT_RIGHT:
+				current.left.right = child;
+				if(child != null && 2L*tou(child) - tou(child.left) - tou(current.left) > 0){
+					current.left = leftRotate(current.left);
+					updateTou(current.left.left);
+					updateTou(current.left);
+				}
+				break;
+			case LEFT:
+				current.left = child;
+				if(2L*tou(current.left) - tou(current.left.right) - tou(current) > 0){
+					TernaryTreeNode rotatedNode = rightRotate(current);
+					updateTou(current);
+					updateTou(rotatedNode);
+					current = rotatedNode;
+				}
+				break;
+			case RIGHT_LEFT:
+				current.right.left = child;
+				if(child != null && 2L*tou(child) - tou(child.right) - tou(current.right) > 0){
+					current.right = rightRotate(current.right);
+					updateTou(current.right.right);
+					updateTou(current.right);
+				}
+				break;
+			case RIGHT_RIGHT:
+				current.right.right = child;
+				if(child != null && 2L*tou(child) - tou(child.left) - tou(current.right) > 0){
+					current.right = leftRotate(current.right);
+					updateTou(current.right.left);
+					updateTou(current.right);
+				}
+				break;
+			case RIGHT:
+				current.right = child;
+				if(2L*tou(current.right) - tou(current.right.left) - tou(current) > 0){
+					TernaryTreeNode rotatedNode = leftRotate(current);
+					updateTou(current);
+					updateTou(rotatedNode);
+					current = rotatedNode;
+				}
+				break;
+			case EQUAL:
+				current.eq = child;
+				break;
+			default:
+				break;
+			}
+			child = current;
+		}
+		if(child != null){
+			root = child;
+		}
+		return found;
+	}
+
+	private static int tou(TernaryTreeNode node){
+		return node == null ? 0 : node.tou;
+	}
+
+	private static void updateTou(TernaryTreeNode node){
+		node.tou = SelfAdjustingTernarySearchTree.saturatedAdd(node.alpha, (long)tou(node.left) + tou(node.right));
+	}
+
+	TernaryTreeNode leftRotate(TernaryTreeNode x){
+		TernaryTreeNode y = x.right;
+		x.right = y.left;
+		y.left = x;
+		return y;
+	}
+
+	TernaryTreeNode rightRotate(TernaryTreeNode x){
+		TernaryTreeNode y = x.left;
+		x.left = y.right;
+		y.right = x;
+		return y;
+	}
+
+	/*
+	 * Number of nodes in the tree.
+	 */
+	public int nodeCount(){
+		int count = 0;
+		ArrayDeque<TernaryTreeNode> stack = new ArrayDeque<TernaryTreeNode>();
+		if(root != null){
+			stack.push(root);
+		}
+		while(!stack.isEmpty()){
+			TernaryTreeNode node = stack.pop();
+			count++;
+			if(node.left != null){
+				stack.push(node.left);
+			}
+			if(node.eq != null){
+				stack.push(node.eq);
+			}
+			if(node.right != null){
+				stack.push(node.right);
+			}
+		}
+		return count;
+	}
+
+	public void levelOrder(){
+		Queue<TernaryTreeNode> queue = new LinkedList<TernaryTreeNode>();
+		queue.add(root);
+		queue.add(null);
+		TernaryTreeNode currNode = null;
+
+		while(!queue.isEmpty()){
+			currNode = queue.poll();
+
+			if(currNode!=null){
+				System.out.print(currNode+"tou("+currNode.tou+")->");
+				System.out.print(currNode.left==null?"[]":currNode.left);
+				System.out.print(currNode.eq==null?"[]":currNode.eq);
+				System.out.print(currNode.right==null?"[]":currNode.right);
+				System.out.println();
+
+				if(currNode.left!=null){
+					queue.add(currNode.left);
+				}
+				if(currNode.eq!=null){
+					queue.add(currNode.eq);
+				}
+				if(currNode.right!=null){
+					queue.add(currNode.right);
+				}
+			}else{
+				System.out.println();
+				if(!queue.isEmpty()){
+					queue.add(null);
+				}
+			}
+		}
+	}
+
+	public static void main(String args[]){
+		CompressedTernarySearchTree ternarySearchTree = new CompressedTernarySearchTree();
+		SelfAdjustingTernarySearchTree uncompressedTree = new SelfAdjustingTernarySearchTree();
+		String[] keys = {"font", "ask", "an", "for", "fork", "rest", "cap", "or"};
+		for(String key : keys){
+			ternarySearchTree.insert(key);
+			uncompressedTree.insert(key);
+		}
+		ternarySearchTree.levelOrder();
+
+		System.out.println("Search cap "+ternarySearchTree.search("cap"));
+		System.out.println("Search cap "+ternarySearchTree.search("cap"));
+		System.out.println("Search fork "+ternarySearchTree.search("fork"));
+		System.out.println("Search fo "+ternarySearchTree.search("fo"));
+		System.out.println("Search tap "+ternarySearchTree.search("tap"));
+		ternarySearchTree.levelOrder();
+
+		String[] urls = {"https://github.com/SamratK/SelfAdjustingTernarySearchTree/blob/master/README.md",
+				"https://github.com/SamratK/SelfAdjustingTernarySearchTree/tree/master/src",
+				"https://github.com/SamratK/SelfAdjustingTernarySearchTree/issues",
+				"https://github.com/SamratK"};
+		for(String url : urls){
+			ternarySearchTree.insert(url);
+			uncompressedTree.insert(url);
+		}
+		System.out.println("Search "+urls[1]+" - "+ternarySearchTree.search(urls[1]));
+		System.out.println("Nodes - "+ternarySearchTree.nodeCount()+", without compression - "+uncompressedTree.nodeCount());
+	}
+}
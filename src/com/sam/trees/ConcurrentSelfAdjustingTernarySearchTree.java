@@ -0,0 +1,269 @@
+package com.sam.trees;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * SelfAdjustingTernarySearchTree which can be searched by any number of threads. Searches walk the tree without modifying it
+ * and record the key in a lock free buffer. The recorded searches are applied to the tree later in batches, with their counter
+ * updates and conditional rotations, by drain. drain is called by a search once its buffer is half full, if no other thread
+ * is draining, or can be called periodically by a maintenance thread.
+ *
+ * The tree is guarded by a StampedLock. Searches walk under an optimistic read stamp and only take the read lock if a drain
+ * or an insert changed the tree meanwhile. Draining, inserts and removals hold the write lock.
+ * The buffers are striped by thread and lossy: a search is not recorded when its buffer is full or contended, which only makes
+ * the restructuring see a sample of the searches.
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+public class ConcurrentSelfAdjustingTernarySearchTree {
+
+	private static final int BUFFER_SIZE = 128;
+
+	//Steps of an optimistic walk between two validations of its stamp. A walk racing with a rotation can go round in a cycle until it validates.
+	private static final int VALIDATE_INTERVAL = 64;
+
+	private final SelfAdjustingTernarySearchTree tree = new SelfAdjustingTernarySearchTree();
+	private final StampedLock lock = new StampedLock();
+	private final ReadBuffer[] buffers;
+
+	/*
+	 * Ring buffer of searched keys written by any thread and read by the thread holding the write lock.
+	 */
+	private static class ReadBuffer{
+		final AtomicReferenceArray<String> keys = new AtomicReferenceArray<String>(BUFFER_SIZE);
+		final AtomicLong writes = new AtomicLong();
+
+		//Only changed by the draining thread.
+		volatile long reads;
+
+		/*
+		 * Returns the number of keys waiting after adding this one, or -1 if the key is dropped.
+		 */
+		int offer(String key){
+			long tail = writes.get();
+			long pending = tail - reads;
+			if(pending >= BUFFER_SIZE || !writes.compareAndSet(tail, tail+1)){
+				return -1;
+			}
+			keys.lazySet((int)(tail & (BUFFER_SIZE-1)), key);
+			return (int)pending + 1;
+		}
+
+		void drainTo(List<String> batch){
+			long head = reads;
+			long tail = writes.get();
+			while(head < tail){
+				int index = (int)(head & (BUFFER_SIZE-1));
+				String key = keys.get(index);
+				if(key == null){
+					//The slot has been claimed but the key is not written yet.
+					break;
+				}
+				keys.lazySet(index, null);
+				batch.add(key);
+				head++;
+			}
+			reads = head;
+		}
+	}
+
+	public ConcurrentSelfAdjustingTernarySearchTree(){
+		int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+		buffers = new ReadBuffer[stripes];
+		for(int i = 0; i < stripes; i++){
+			buffers[i] = new ReadBuffer();
+		}
+	}
+
+	/*
+	 * Searches the key without modifying the tree and records the access to be applied by a later drain.
+	 */
+	public boolean search(String key){
+		if(key.length() == 0){
+			return false;
+		}
+
+		int found = -1;
+		long stamp = lock.tryOptimisticRead();
+		if(stamp != 0){
+			found = walk(key, stamp);
+			if(!lock.validate(stamp)){
+				found = -1;
+			}
+		}
+		if(found < 0){
+			stamp = lock.readLock();
+			try{
+				found = walk(key, 0);
+			}finally{
+				lock.unlockRead(stamp);
+			}
+		}
+
+		ReadBuffer buffer = buffers[(int)Thread.currentThread().getId() & (buffers.length-1)];
+		if(buffer.offer(key) >= BUFFER_SIZE/2){
+			tryDrain();
+		}
+		return found == 1;
+	}
+
+	/*
+	 * Walks the key down the tree. Returns 1 if it is found and 0 if not, or -1 if the optimistic stamp was invalidated during the walk.
+	 * A stamp of 0 means the read lock is held and nothing is validated.
+	 */
+	private int walk(String key, long stamp){
+		SelfAdjustingTernarySearchTree.TernaryTreeNode node = tree.root();
+		int pos = 0;
+		int steps = 0;
+		while(node != null){
+			if(stamp != 0 && ++steps % VALIDATE_INTERVAL == 0 && !lock.validate(stamp)){
+				return -1;
+			}
+			char c = key.charAt(pos);
+			if(c < node.data){
+				node = node.left;
+			}else if(c > node.data){
+				node = node.right;
+			}else{
+				if(pos == key.length()-1){
+					return node.isLeaf ? 1 : 0;
+				}
+				pos++;
+				node = node.eq;
+			}
+		}
+		return 0;
+	}
+
+	private void tryDrain(){
+		long stamp = lock.tryWriteLock();
+		if(stamp == 0){
+			return;
+		}
+		try{
+			drainBuffers();
+		}finally{
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/*
+	 * Applies the recorded searches to the tree. Can be called by a maintenance thread, searches drain on their own otherwise.
+	 */
+	public void drain(){
+		long stamp = lock.writeLock();
+		try{
+			drainBuffers();
+		}finally{
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	private void drainBuffers(){
+		List<String> batch = new ArrayList<String>();
+		for(ReadBuffer buffer : buffers){
+			buffer.drainTo(batch);
+		}
+		if(!batch.isEmpty()){
+			//Repeated keys are applied once with their count as the weight.
+			tree.searchAll(batch);
+		}
+	}
+
+	public void insert(String key){
+		long stamp = lock.writeLock();
+		try{
+			tree.insert(key);
+		}finally{
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	public boolean remove(String key){
+		long stamp = lock.writeLock();
+		try{
+			return tree.remove(key);
+		}finally{
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	public void setRestructuringPolicy(RestructuringPolicy policy){
+		long stamp = lock.writeLock();
+		try{
+			tree.setRestructuringPolicy(policy);
+		}finally{
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	public void setDecay(int interval, double factor){
+		long stamp = lock.writeLock();
+		try{
+			tree.setDecay(interval, factor);
+		}finally{
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/*
+	 * Rebuilds the BSTs of at most maxLevels levels from the counters, see SelfAdjustingTernarySearchTree.optimize(int).
+	 * Holding the write lock for a few levels at a time lets a maintenance thread optimize a large tree while it is being searched.
+	 */
+	public boolean optimize(int maxLevels){
+		long stamp = lock.writeLock();
+		try{
+			return tree.optimize(maxLevels);
+		}finally{
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/*
+	 * Sum of tou over all the nodes, see SelfAdjustingTernarySearchTree.weightedPathLength.
+	 */
+	public long weightedPathLength(){
+		long stamp = lock.writeLock();
+		try{
+			return tree.weightedPathLength();
+		}finally{
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	public static void main(String args[]) throws InterruptedException{
+		final ConcurrentSelfAdjustingTernarySearchTree ternarySearchTree = new ConcurrentSelfAdjustingTernarySearchTree();
+		final String[] keys = {"font", "ask", "an", "fork", "for", "rest", "cap", "or"};
+		for(String key : keys){
+			ternarySearchTree.insert(key);
+		}
+		long before = ternarySearchTree.weightedPathLength();
+
+		Thread[] readers = new Thread[4];
+		for(int i = 0; i < readers.length; i++){
+			readers[i] = new Thread(){
+				@Override
+				public void run(){
+					for(int j = 0; j < 100000; j++){
+						//Most of the searches are for cap and or.
+						ternarySearchTree.search(j % 4 < 3 ? keys[6 + j % 2] : keys[j % keys.length]);
+					}
+				}
+			};
+			readers[i].start();
+		}
+		for(Thread reader : readers){
+			reader.join();
+		}
+		ternarySearchTree.drain();
+
+		System.out.println("Weighted path length before "+before+", after "+ternarySearchTree.weightedPathLength());
+		System.out.println("Search cap - "+ternarySearchTree.search("cap"));
+		System.out.println("Search tap - "+ternarySearchTree.search("tap"));
+		System.out.println("Remove cap - "+ternarySearchTree.remove("cap")+", search cap - "+ternarySearchTree.search("cap"));
+	}
+}
@@ -0,0 +1,194 @@
+package com.sam.trees;
+
+import java.util.Arrays;
+
+/**
+ * Small cache of the nodes of the most frequently searched keys of a SelfAdjustingTernarySearchTree, consulted before the tree walk.
+ * Keys are admitted as in TinyLFU: the frequency of every searched key is estimated by a count-min sketch of small counters which are
+ * halved periodically, and a key found in the tree only replaces the least frequent key of its set if it has been searched more often.
+ * The cache is 4 way set associative, so a lookup compares at most 4 keys and a hit does not allocate.
+ * Hits are counted per entry and applied to the tree as one weighted adjustment once a key has a few of them, so the rotations of the
+ * hot keys are not held back, and all pending hits are applied once there are as many as the capacity.
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+final class FrontCache {
+
+	private static final int WAYS = 4;
+	private static final int MAX_FREQUENCY = 15;
+	private static final int CHUNK = 4;
+
+	//Odd multipliers hashing a key into each row of the sketch.
+	private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+	private final SelfAdjustingTernarySearchTree tree;
+
+	private final String[] keys;
+	private final int[] hashes;
+	private final SelfAdjustingTernarySearchTree.TernaryTreeNode[] nodes;
+
+	//Hits of each entry which have not been applied to the tree yet.
+	private final int[] pending;
+	private int pendingHits;
+	//Entry of the last hit, -1 if the last lookup missed.
+	private int lastHit = -1;
+	private final int sets;
+
+	//Rows of 4 bit frequencies, one byte each for simplicity.
+	private final byte[] sketch;
+	private final int rowBits;
+	private int additions;
+	private final int resetInterval;
+
+	FrontCache(SelfAdjustingTernarySearchTree tree, int capacity){
+		this.tree = tree;
+		sets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS - 1)) << 1;
+		int size = sets * WAYS;
+		keys = new String[size];
+		hashes = new int[size];
+		nodes = new SelfAdjustingTernarySearchTree.TernaryTreeNode[size];
+		pending = new int[size];
+
+		rowBits = Integer.numberOfTrailingZeros(size) + 1;
+		sketch = new byte[SEEDS.length << rowBits];
+		resetInterval = 10 * size;
+	}
+
+	int capacity(){
+		return keys.length;
+	}
+
+	static int hash(CharSequence key){
+		int h = 0;
+		for(int i = 0; i < key.length(); i++){
+			h = 31*h + key.charAt(i);
+		}
+		return h ^ (h >>> 16);
+	}
+
+	/*
+	 * Counts a search of the key and returns its cached node, or null if the key is not cached.
+	 */
+	SelfAdjustingTernarySearchTree.TernaryTreeNode get(CharSequence key, int hash){
+		increment(hash);
+		lastHit = -1;
+		int set = (hash & (sets-1)) * WAYS;
+		for(int i = set; i < set + WAYS; i++){
+			if(nodes[i] != null && hashes[i] == hash && keys[i].contentEquals(key)){
+				pending[i]++;
+				pendingHits++;
+				lastHit = i;
+				return nodes[i];
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Offers the node of a key found in the tree. The key takes an empty way of its set, or replaces the least frequent key of the set
+	 * if it is more frequent. The pending hits of a replaced key are applied to the tree first.
+	 */
+	void admit(CharSequence key, int hash, SelfAdjustingTernarySearchTree.TernaryTreeNode node){
+		int set = (hash & (sets-1)) * WAYS;
+		int victim = -1;
+		int victimFrequency = Integer.MAX_VALUE;
+		for(int i = set; i < set + WAYS; i++){
+			if(nodes[i] == null){
+				victim = i;
+				victimFrequency = -1;
+				break;
+			}
+			int f = frequency(hashes[i]);
+			if(f < victimFrequency){
+				victim = i;
+				victimFrequency = f;
+			}
+		}
+		if(victimFrequency >= 0 && frequency(hash) <= victimFrequency){
+			return;
+		}
+		if(pending[victim] > 0){
+			applyPending(victim);
+		}
+		keys[victim] = key.toString();
+		hashes[victim] = hash;
+		nodes[victim] = node;
+	}
+
+	/*
+	 * Drops the key and its pending hits, called when it is removed from the tree.
+	 */
+	void remove(CharSequence key){
+		int hash = hash(key);
+		int set = (hash & (sets-1)) * WAYS;
+		for(int i = set; i < set + WAYS; i++){
+			if(nodes[i] != null && hashes[i] == hash && keys[i].contentEquals(key)){
+				pendingHits -= pending[i];
+				pending[i] = 0;
+				keys[i] = null;
+				nodes[i] = null;
+				return;
+			}
+		}
+	}
+
+	/*
+	 * Applies the pending hits of the last hit key once it has a chunk of them, and all pending hits once there are as many as the capacity of the cache.
+	 */
+	void flushIfDue(){
+		if(lastHit >= 0 && pending[lastHit] >= CHUNK){
+			applyPending(lastHit);
+		}
+		if(pendingHits >= keys.length){
+			flush();
+		}
+	}
+
+	void flush(){
+		for(int i = 0; i < keys.length; i++){
+			if(pending[i] > 0){
+				applyPending(i);
+			}
+		}
+	}
+
+	/*
+	 * Applies the pending hits and empties the cache, called when the nodes of the tree are replaced.
+	 */
+	void clear(){
+		flush();
+		Arrays.fill(keys, null);
+		Arrays.fill(nodes, null);
+	}
+
+	private void applyPending(int i){
+		int hits = pending[i];
+		pending[i] = 0;
+		pendingHits -= hits;
+		tree.applyCachedHits(keys[i], hits);
+	}
+
+	private void increment(int hash){
+		for(int row = 0; row < SEEDS.length; row++){
+			int index = (row << rowBits) + ((hash * SEEDS[row]) >>> (32 - rowBits));
+			if(sketch[index] < MAX_FREQUENCY){
+				sketch[index]++;
+			}
+		}
+		if(++additions == resetInterval){
+			//Halving keeps the frequencies recent, so keys which stopped being searched can be replaced.
+			for(int i = 0; i < sketch.length; i++){
+				sketch[i] >>= 1;
+			}
+			additions /= 2;
+		}
+	}
+
+	private int frequency(int hash){
+		int frequency = MAX_FREQUENCY;
+		for(int row = 0; row < SEEDS.length; row++){
+			frequency = Math.min(frequency, sketch[(row << rowBits) + ((hash * SEEDS[row]) >>> (32 - rowBits))]);
+		}
+		return frequency;
+	}
+}
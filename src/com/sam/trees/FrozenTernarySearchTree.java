@@ -0,0 +1,85 @@
+package com.sam.trees;
+
+/**
+ * Immutable image of a SelfAdjustingTernarySearchTree created by SelfAdjustingTernarySearchTree.freeze.
+ * All the nodes are packed in a single int array, four ints per node: the character and the leaf flag, then the offsets of
+ * the left, right and eq children, -1 for a missing child. The nodes are laid out hot path first: every node is followed by
+ * its child with the highest tou, so the most frequently searched keys are read from consecutive cache lines.
+ * Lookups only read the array, so any number of threads can search the same image without locking. A Holder lets a rebuilt
+ * image be swapped in while other threads keep searching the previous one.
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+public final class FrozenTernarySearchTree {
+
+	static final int NODE_SIZE = 4;
+	static final int LEAF = 1 << 16;
+	static final int NIL = -1;
+
+	private final int[] nodes;
+
+	FrozenTernarySearchTree(int[] nodes){
+		this.nodes = nodes;
+	}
+
+	public int nodeCount(){
+		return nodes.length / NODE_SIZE;
+	}
+
+	/*
+	 * Searches the key without any write.
+	 */
+	public boolean contains(CharSequence key){
+		if(key.length() == 0){
+			return false;
+		}
+
+		int node = nodes.length == 0 ? NIL : 0;
+		int pos = 0;
+		while(node != NIL){
+			char c = key.charAt(pos);
+			char data = (char)nodes[node];
+			if(c < data){
+				node = nodes[node+1];
+			}else if(c > data){
+				node = nodes[node+2];
+			}else{
+				if(pos == key.length()-1){
+					return (nodes[node] & LEAF) != 0;
+				}
+				pos++;
+				node = nodes[node+3];
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reference to the current image of a tree. Searches read the image once through a volatile field,
+	 * so set can publish a rebuilt image at any time and searches already running finish on the image they started with.
+	 */
+	public static final class Holder {
+		private volatile FrozenTernarySearchTree image;
+
+		public Holder(FrozenTernarySearchTree image){
+			this.image = image;
+		}
+
+		public FrozenTernarySearchTree get(){
+			return image;
+		}
+
+		/*
+		 * Publishes a new image and returns the previous one.
+		 */
+		public synchronized FrozenTernarySearchTree set(FrozenTernarySearchTree image){
+			FrozenTernarySearchTree previous = this.image;
+			this.image = image;
+			return previous;
+		}
+
+		public boolean contains(CharSequence key){
+			return image.contains(key);
+		}
+	}
+}
@@ -0,0 +1,313 @@
+package com.sam.trees;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Benchmark comparing the lookup paths of the trees under skewed workloads.
+ * For every dictionary size and workload, a fresh tree is built per scheme, warmed up and then measured.
+ * Reported per scheme are the mean latency, sampled p50/p99 latencies and the allocated bytes per operation.
+ *
+ * Usage: java com.sam.trees.LookupBenchmark [sizes] [operations] [warmup operations]
+ * e.g. java -Xmx16g com.sam.trees.LookupBenchmark 10000,100000,1000000,10000000 2000000 1000000
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+public class LookupBenchmark {
+
+	static final int[] DEFAULT_SIZES = {10000, 100000, 1000000, 10000000};
+
+	//Latency of every SAMPLE_RATE-th operation is recorded individually for percentiles.
+	static final int SAMPLE_RATE = 64;
+
+	//Fraction of lookups for keys which are not in the dictionary in miss heavy workload.
+	static final double MISS_RATIO = 0.6;
+
+	//Fraction of the dictionary forming the hot set and the share of traffic it receives.
+	static final double HOTSET_RATIO = 0.01;
+	static final double HOTSET_TRAFFIC = 0.9;
+
+	static final long SEED = 42;
+
+	enum Scheme{
+		SPLAY, CONDITIONAL, STATIC, FROZEN
+	}
+
+	/*
+	 * Describes how the sequence of lookups is drawn from the dictionary.
+	 */
+	static class Workload{
+		final String name;
+		final double zipfExponent;
+		final boolean shiftingHotset;
+		final boolean missHeavy;
+
+		Workload(String name, double zipfExponent, boolean shiftingHotset, boolean missHeavy){
+			this.name = name;
+			this.zipfExponent = zipfExponent;
+			this.shiftingHotset = shiftingHotset;
+			this.missHeavy = missHeavy;
+		}
+	}
+
+	static final Workload[] WORKLOADS = {
+		new Workload("uniform", 0, false, false),
+		new Workload("zipf-0.8", 0.8, false, false),
+		new Workload("zipf-0.99", 0.99, false, false),
+		new Workload("zipf-1.2", 1.2, false, false),
+		new Workload("shifting-hotset", 0, true, false),
+		new Workload("miss-heavy", 0.99, false, true)
+	};
+
+	/*
+	 * Zipf distributed ranks in [1, n] using rejection inversion, so no table of size n has to be kept.
+	 */
+	static class ZipfGenerator{
+		final double exponent;
+		final double hIntegralX1;
+		final double hIntegralN;
+		final double s;
+		final Random random;
+		final int n;
+
+		ZipfGenerator(int n, double exponent, Random random){
+			this.n = n;
+			this.exponent = exponent;
+			this.random = random;
+			hIntegralX1 = hIntegral(1.5) - 1;
+			hIntegralN = hIntegral(n + 0.5);
+			s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+		}
+
+		int next(){
+			while(true){
+				double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+				double x = hIntegralInverse(u);
+				int k = (int)(x + 0.5);
+				if(k < 1){
+					k = 1;
+				}else if(k > n){
+					k = n;
+				}
+				if(k - x <= s || u >= hIntegral(k + 0.5) - h(k)){
+					return k;
+				}
+			}
+		}
+
+		private double h(double x){
+			return Math.exp(-exponent * Math.log(x));
+		}
+
+		private double hIntegral(double x){
+			double logX = Math.log(x);
+			return helper2((1 - exponent) * logX) * logX;
+		}
+
+		private double hIntegralInverse(double x){
+			double t = x * (1 - exponent);
+			if(t < -1){
+				t = -1;
+			}
+			return Math.exp(helper1(t) * x);
+		}
+
+		private static double helper1(double x){
+			if(Math.abs(x) > 1e-8){
+				return Math.log1p(x) / x;
+			}
+			return 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+		}
+
+		private static double helper2(double x){
+			if(Math.abs(x) > 1e-8){
+				return Math.expm1(x) / x;
+			}
+			return 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+		}
+	}
+
+	/*
+	 * Generates count distinct random keys of lower case letters with lengths between 4 and 16.
+	 * Keys in exclude are skipped so that miss keys never collide with the dictionary.
+	 */
+	static String[] generateKeys(int count, Random random, Set<String> exclude){
+		Set<String> seen = new HashSet<String>(count * 2);
+		String[] keys = new String[count];
+		char[] buffer = new char[16];
+		int i = 0;
+		while(i < count){
+			int length = 4 + random.nextInt(13);
+			for(int j = 0; j < length; j++){
+				buffer[j] = (char)('a' + random.nextInt(26));
+			}
+			String key = new String(buffer, 0, length);
+			if(exclude != null && exclude.contains(key)){
+				continue;
+			}
+			if(seen.add(key)){
+				keys[i++] = key;
+			}
+		}
+		return keys;
+	}
+
+	/*
+	 * Builds the sequence of keys to be looked up for the given workload.
+	 */
+	static String[] generateLookups(Workload workload, String[] keys, String[] missKeys, int operations, Random random){
+		String[] lookups = new String[operations];
+		ZipfGenerator zipf = workload.zipfExponent > 0 ? new ZipfGenerator(keys.length, workload.zipfExponent, random) : null;
+		int hotsetSize = Math.max(1, (int)(keys.length * HOTSET_RATIO));
+
+		//The hot set moves to a different region of the dictionary ten times during the run.
+		int phaseLength = Math.max(1, operations / 10);
+		int hotsetStart = 0;
+
+		for(int i = 0; i < operations; i++){
+			if(workload.missHeavy && random.nextDouble() < MISS_RATIO){
+				lookups[i] = missKeys[random.nextInt(missKeys.length)];
+				continue;
+			}
+			if(workload.shiftingHotset){
+				if(i % phaseLength == 0){
+					hotsetStart = random.nextInt(keys.length);
+				}
+				if(random.nextDouble() < HOTSET_TRAFFIC){
+					lookups[i] = keys[(hotsetStart + random.nextInt(hotsetSize)) % keys.length];
+				}else{
+					lookups[i] = keys[random.nextInt(keys.length)];
+				}
+			}else if(zipf != null){
+				lookups[i] = keys[zipf.next() - 1];
+			}else{
+				lookups[i] = keys[random.nextInt(keys.length)];
+			}
+		}
+		return lookups;
+	}
+
+	/*
+	 * Allocated bytes of the current thread, or -1 if the JVM does not support allocation accounting.
+	 */
+	static long allocatedBytes(){
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean){
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean)bean;
+			if(sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()){
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	//Consumes results so that the JIT can not eliminate the lookups.
+	static int blackhole;
+
+	/*
+	 * Runs the lookups against a freshly built tree of the given scheme and prints the measurements.
+	 */
+	static void run(Scheme scheme, Workload workload, String[] keys, String[] warmup, String[] lookups){
+		SelfAdjustingTernarySearchTree conditionalTree = null;
+		TenarySearchSplayTree splayTree = null;
+		if(scheme == Scheme.SPLAY){
+			splayTree = new TenarySearchSplayTree();
+			for(String key : keys){
+				splayTree.insert(key);
+			}
+		}else{
+			conditionalTree = new SelfAdjustingTernarySearchTree();
+			for(String key : keys){
+				conditionalTree.insert(key);
+			}
+		}
+
+		//The frozen image is compiled from a tree trained by the warmup lookups.
+		FrozenTernarySearchTree frozenTree = null;
+		if(scheme == Scheme.FROZEN){
+			execute(Scheme.CONDITIONAL, conditionalTree, splayTree, null, warmup, null);
+			frozenTree = conditionalTree.freeze();
+		}
+		execute(scheme, conditionalTree, splayTree, frozenTree, warmup, null);
+
+		long[] samples = new long[lookups.length / SAMPLE_RATE + 1];
+		long allocatedBefore = allocatedBytes();
+		long start = System.nanoTime();
+		int hits = execute(scheme, conditionalTree, splayTree, frozenTree, lookups, samples);
+		long elapsed = System.nanoTime() - start;
+		long allocatedAfter = allocatedBytes();
+
+		int sampleCount = lookups.length / SAMPLE_RATE;
+		Arrays.sort(samples, 0, sampleCount);
+		long p50 = sampleCount == 0 ? 0 : samples[sampleCount / 2];
+		long p99 = sampleCount == 0 ? 0 : samples[Math.min(sampleCount - 1, (int)(sampleCount * 0.99))];
+		String allocation = allocatedBefore < 0 ? "n/a" : String.format("%.2f", (allocatedAfter - allocatedBefore) / (double)lookups.length);
+
+		System.out.println(String.format("%-10d %-16s %-12s %10.1f %10d %10d %12s %8.3f",
+				keys.length, workload.name, scheme, elapsed / (double)lookups.length, p50, p99, allocation, hits / (double)lookups.length));
+	}
+
+	private static int execute(Scheme scheme, SelfAdjustingTernarySearchTree conditionalTree, TenarySearchSplayTree splayTree,
+			FrozenTernarySearchTree frozenTree, String[] lookups, long[] samples){
+		int hits = 0;
+		for(int i = 0; i < lookups.length; i++){
+			boolean sampled = samples != null && i % SAMPLE_RATE == 0;
+			long start = sampled ? System.nanoTime() : 0;
+			boolean found;
+			switch(scheme){
+			case SPLAY:
+				found = splayTree.splaySearch(lookups[i]);
+				break;
+			case CONDITIONAL:
+				found = conditionalTree.search(lookups[i]);
+				break;
+			case FROZEN:
+				found = frozenTree.contains(lookups[i]);
+				break;
+			default:
+				found = conditionalTree.searchWithoutSplaying(lookups[i]);
+			}
+			if(sampled){
+				samples[i / SAMPLE_RATE] = System.nanoTime() - start;
+			}
+			if(found){
+				hits++;
+			}
+		}
+		blackhole += hits;
+		return hits;
+	}
+
+	public static void main(String args[]){
+		int[] sizes = DEFAULT_SIZES;
+		if(args.length > 0){
+			String[] parts = args[0].split(",");
+			sizes = new int[parts.length];
+			for(int i = 0; i < parts.length; i++){
+				sizes[i] = Integer.parseInt(parts[i].trim());
+			}
+		}
+		int operations = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		int warmupOperations = args.length > 2 ? Integer.parseInt(args[2]) : 500000;
+
+		System.out.println(String.format("%-10s %-16s %-12s %10s %10s %10s %12s %8s",
+				"size", "workload", "scheme", "ns/op", "p50(ns)", "p99(ns)", "bytes/op", "hits"));
+
+		for(int size : sizes){
+			Random random = new Random(SEED);
+			String[] keys = generateKeys(size, random, null);
+			String[] missKeys = generateKeys(Math.max(1, size / 10), random, new HashSet<String>(Arrays.asList(keys)));
+
+			for(Workload workload : WORKLOADS){
+				String[] warmup = generateLookups(workload, keys, missKeys, warmupOperations, random);
+				String[] lookups = generateLookups(workload, keys, missKeys, operations, random);
+				for(Scheme scheme : Scheme.values()){
+					run(scheme, workload, keys, warmup, lookups);
+				}
+			}
+		}
+	}
+}
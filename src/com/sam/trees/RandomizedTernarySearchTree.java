@@ -0,0 +1,267 @@
+package com.sam.trees;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Random;
+
+/**
+ * Randomized ternary search tree. Similar to a Treap, every node is given a random priority when it is created and is rotated
+ * up within the BST of its level until its parent has a higher priority. This keeps the expected depth of every level logarithmic
+ * regardless of the insertion order. Searches do not modify the tree, so any number of threads can search concurrently
+ * as long as no thread inserts.
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+public class RandomizedTernarySearchTree {
+	class TernaryTreeNode{
+		char data;
+		boolean isLeaf;
+		int priority;
+		TernaryTreeNode left, right, eq;
+		TernaryTreeNode(char data, int priority){
+			this.data = data;
+			this.priority = priority;
+		}
+		public String toString(){
+			return "["+data+"]";
+		}
+	}
+
+	private TernaryTreeNode root;
+	private final Random random;
+
+	//Nodes visited since entering the BST of the current level, reused across inserts.
+	private TernaryTreeNode[] path = new TernaryTreeNode[32];
+
+	public RandomizedTernarySearchTree(){
+		this(new Random());
+	}
+
+	public RandomizedTernarySearchTree(long seed){
+		this(new Random(seed));
+	}
+
+	private RandomizedTernarySearchTree(Random random){
+		this.random = random;
+	}
+
+	public void insert(String data){
+		if(data.length() == 0){
+			return;
+		}
+		if(root == null){
+			root = new TernaryTreeNode(data.charAt(0), random.nextInt());
+		}
+
+		//Parent of the level through its eq link, null for the top level.
+		TernaryTreeNode levelParent = null;
+		int depth = 0;
+		TernaryTreeNode node = root;
+		int pos = 0;
+		while(true){
+			char c = data.charAt(pos);
+			if(c < node.data){
+				push(depth++, node);
+				if(node.left == null){
+					TernaryTreeNode created = new TernaryTreeNode(c, random.nextInt());
+					node.left = created;
+					bubbleUp(levelParent, depth, created);
+					node = created;
+				}else{
+					node = node.left;
+				}
+			}else if(c > node.data){
+				push(depth++, node);
+				if(node.right == null){
+					TernaryTreeNode created = new TernaryTreeNode(c, random.nextInt());
+					node.right = created;
+					bubbleUp(levelParent, depth, created);
+					node = created;
+				}else{
+					node = node.right;
+				}
+			}else{
+				if(pos == data.length()-1){
+					node.isLeaf = true;
+					break;
+				}
+				pos++;
+				if(node.eq == null){
+					node.eq = new TernaryTreeNode(data.charAt(pos), random.nextInt());
+				}
+				levelParent = node;
+				depth = 0;
+				node = node.eq;
+			}
+		}
+		Arrays.fill(path, null);
+	}
+
+	private void push(int depth, TernaryTreeNode node){
+		if(depth == path.length){
+			path = Arrays.copyOf(path, depth*2);
+		}
+		path[depth] = node;
+	}
+
+	/*
+	 * Rotates the node just created below path[depth-1] up while its priority is higher than its parent's priority.
+	 */
+	private void bubbleUp(TernaryTreeNode levelParent, int depth, TernaryTreeNode node){
+		int parentIndex = depth-1;
+		TernaryTreeNode parent = path[parentIndex];
+		while(parent != null && node.priority > parent.priority){
+			TernaryTreeNode rotated = parent.left == node ? rightRotate(parent) : leftRotate(parent);
+
+			//Link the rotated subtree to the grandparent or to the level's entry.
+			if(parentIndex == 0){
+				if(levelParent == null){
+					root = rotated;
+				}else{
+					levelParent.eq = rotated;
+				}
+				parent = null;
+			}else{
+				TernaryTreeNode grandParent = path[parentIndex-1];
+				if(grandParent.left == parent){
+					grandParent.left = rotated;
+				}else{
+					grandParent.right = rotated;
+				}
+				parent = grandParent;
+				parentIndex--;
+			}
+		}
+	}
+
+	/*
+	 * Searches the string without modifying the tree.
+	 */
+	public boolean search(String data){
+		if(data.length() == 0){
+			return false;
+		}
+
+		TernaryTreeNode node = root;
+		int pos = 0;
+		while(node != null){
+			char c = data.charAt(pos);
+			if(c < node.data){
+				node = node.left;
+			}else if(c > node.data){
+				node = node.right;
+			}else{
+				if(pos == data.length()-1){
+					return node.isLeaf;
+				}
+				pos++;
+				node = node.eq;
+			}
+		}
+		return false;
+	}
+
+	TernaryTreeNode leftRotate(TernaryTreeNode x){
+		TernaryTreeNode y = x.right;
+		x.right = y.left;
+		y.left = x;
+		return y;
+	}
+
+	TernaryTreeNode rightRotate(TernaryTreeNode x){
+		TernaryTreeNode y = x.left;
+		x.left = y.right;
+		y.right = x;
+		return y;
+	}
+
+	/*
+	 * Number of nodes on the longest root to node path, counting left, right and eq links.
+	 */
+	public int height(){
+		int height = 0;
+		Queue<TernaryTreeNode> queue = new LinkedList<TernaryTreeNode>();
+		if(root != null){
+			queue.add(root);
+		}
+		while(!queue.isEmpty()){
+			height++;
+			for(int i = queue.size(); i > 0; i--){
+				TernaryTreeNode node = queue.poll();
+				if(node.left != null){
+					queue.add(node.left);
+				}
+				if(node.eq != null){
+					queue.add(node.eq);
+				}
+				if(node.right != null){
+					queue.add(node.right);
+				}
+			}
+		}
+		return height;
+	}
+
+	public void levelOrder(){
+		Queue<TernaryTreeNode> queue = new LinkedList<TernaryTreeNode>();
+		queue.add(root);
+		queue.add(null);
+		TernaryTreeNode currNode = null;
+
+		while(!queue.isEmpty()){
+			currNode = queue.poll();
+
+			if(currNode!=null){
+				System.out.print(currNode.data+"->");
+				System.out.print(currNode.left==null?"[]":currNode.left);
+				System.out.print(currNode.eq==null?"[]":currNode.eq);
+				System.out.print(currNode.right==null?"[]":currNode.right);
+				System.out.println();
+
+				if(currNode.left!=null){
+					queue.add(currNode.left);
+				}
+				if(currNode.eq!=null){
+					queue.add(currNode.eq);
+				}
+				if(currNode.right!=null){
+					queue.add(currNode.right);
+				}
+			}else{
+				System.out.println();
+				if(!queue.isEmpty()){
+					queue.add(null);
+				}
+			}
+		}
+	}
+
+	public static void main(String args[]){
+		RandomizedTernarySearchTree ternarySearchTree = new RandomizedTernarySearchTree(7);
+
+		//Keys arriving in sorted order would make every level a right spine without the random priorities.
+		String[] keys = {"an", "ask", "cap", "font", "for", "fork", "or", "rest"};
+		for(String key : keys){
+			ternarySearchTree.insert(key);
+		}
+		ternarySearchTree.levelOrder();
+		//TreeVisualizer.createTree(ternarySearchTree.root);
+
+		System.out.println("Search font - "+ternarySearchTree.search("font"));
+		System.out.println("Search ask - "+ternarySearchTree.search("ask"));
+		System.out.println("Search an - "+ternarySearchTree.search("an"));
+		System.out.println("Search fork - "+ternarySearchTree.search("fork"));
+		System.out.println("Search for - "+ternarySearchTree.search("for"));
+		System.out.println("Search rest - "+ternarySearchTree.search("rest"));
+		System.out.println("Search tap - "+ternarySearchTree.search("tap"));
+		System.out.println("Search cap - "+ternarySearchTree.search("cap"));
+		System.out.println("Search or - "+ternarySearchTree.search("or"));
+
+		RandomizedTernarySearchTree sortedTree = new RandomizedTernarySearchTree(7);
+		for(int i = 0; i < 100000; i++){
+			sortedTree.insert(String.format("%06d", i));
+		}
+		System.out.println("Height after 100000 sorted inserts - "+sortedTree.height());
+	}
+}
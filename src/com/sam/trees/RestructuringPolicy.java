@@ -0,0 +1,195 @@
+package com.sam.trees;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides when a search is allowed to restructure the tree.
+ * By default every search adjusts the tree, as the trees do without a policy.
+ * Restructuring can be skipped for unsuccessful searches, limited to every Nth search or to a random fraction of searches,
+ * and stopped once the measured cost improvement per adjusted search drops below a threshold. A converged tree searches without
+ * writing to its nodes. With a probe interval, a converged tree still adjusts on every probe interval-th search, and restructuring
+ * is switched back on when the probes show that the access distribution has drifted enough for rotations to pay off again.
+ * Sampled searches can increase the counters by the inverse of the sampling rate, so that the counters of a sampled tree
+ * estimate the counts of all the searches while only the sampled searches write to the nodes.
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+public class RestructuringPolicy {
+
+	private boolean adjustOnMiss = true;
+	private int sampleInterval = 1;
+	private double sampleProbability = 1;
+	private boolean scaleSampledCounts;
+
+	//Adjustment stops when the average cost improvement of the adjusted searches in a window is below this rate.
+	private double minImprovementRate;
+	private int window;
+
+	//Searches between two probes of a converged tree, 0 to never probe.
+	private int probeInterval;
+
+	private long searches;
+	private int windowSearches;
+	private long windowGain;
+	private long windowRotations;
+	private boolean converged;
+	private int searchesSinceProbe;
+
+	//Measured over the last complete window.
+	private double improvementRate = Double.NaN;
+	private double rotationRate = Double.NaN;
+
+	/*
+	 * Whether unsuccessful searches may update counters and rotate. The closest node is still returned by the search.
+	 */
+	public void setAdjustOnMiss(boolean adjustOnMiss){
+		this.adjustOnMiss = adjustOnMiss;
+	}
+
+	/*
+	 * Only every interval-th search is considered for restructuring.
+	 */
+	public void setSampleInterval(int interval){
+		if(interval < 1){
+			throw new IllegalArgumentException("Invalid sample interval "+interval);
+		}
+		sampleInterval = interval;
+	}
+
+	/*
+	 * A search is considered for restructuring with the given probability.
+	 */
+	public void setSampleProbability(double probability){
+		if(probability <= 0 || probability > 1){
+			throw new IllegalArgumentException("Invalid sample probability "+probability);
+		}
+		sampleProbability = probability;
+	}
+
+	/*
+	 * Stops restructuring once the total psi of the rotations done, averaged over the last window of adjusted searches,
+	 * is below rate. psi of a rotation is the decrease of the weighted path length it causes.
+	 * A rate of 0 disables the check.
+	 */
+	public void setMinImprovementRate(double rate, int window){
+		if(rate < 0 || window < 1){
+			throw new IllegalArgumentException("Invalid improvement rate "+rate+" or window "+window);
+		}
+		minImprovementRate = rate;
+		this.window = window;
+		clearWindow();
+	}
+
+	/*
+	 * Once converged, every interval-th search is done with restructuring as a probe. When the average psi of a window of probes
+	 * reaches the minimum improvement rate again, restructuring is switched back on. An interval of 0 disables probing.
+	 */
+	public void setProbeInterval(int interval){
+		if(interval < 0){
+			throw new IllegalArgumentException("Invalid probe interval "+interval);
+		}
+		probeInterval = interval;
+		searchesSinceProbe = 0;
+	}
+
+	/*
+	 * Whether a sampled search increases the counters on its path by sampleInterval / sampleProbability instead of by 1.
+	 * Every counter then estimates the number of accesses of all the searches, sampled or not, which keeps the sampled counters
+	 * on the same scale as the counters set before sampling was enabled and as the weights of batched searches.
+	 */
+	public void setScaleSampledCounts(boolean scale){
+		scaleSampledCounts = scale;
+	}
+
+	public boolean adjustOnMiss(){
+		return adjustOnMiss;
+	}
+
+	/*
+	 * Whether restructuring has been stopped because the improvement rate dropped below the threshold.
+	 */
+	public boolean isConverged(){
+		return converged;
+	}
+
+	/*
+	 * Average total psi per adjusted search over the last window, NaN before the first window is complete.
+	 */
+	public double improvementRate(){
+		return improvementRate;
+	}
+
+	/*
+	 * Average number of rotations per adjusted search over the last window, NaN before the first window is complete.
+	 */
+	public double rotationRate(){
+		return rotationRate;
+	}
+
+	/*
+	 * Starts restructuring again and discards the measured improvement.
+	 */
+	public void reset(){
+		converged = false;
+		searchesSinceProbe = 0;
+		clearWindow();
+	}
+
+	private void clearWindow(){
+		windowSearches = 0;
+		windowGain = 0;
+		windowRotations = 0;
+	}
+
+	/*
+	 * Called once per search. Returns whether the search may restructure the tree.
+	 */
+	boolean shouldAdjust(){
+		if(converged){
+			if(probeInterval == 0 || ++searchesSinceProbe < probeInterval){
+				return false;
+			}
+			searchesSinceProbe = 0;
+			return true;
+		}
+		searches++;
+		if(sampleInterval > 1 && searches % sampleInterval != 0){
+			return false;
+		}
+		return sampleProbability >= 1 || ThreadLocalRandom.current().nextDouble() < sampleProbability;
+	}
+
+	/*
+	 * Called when shouldAdjust returned true. Returns the weight by which the search increases the counters on its path.
+	 * A fractional weight is rounded up or down at random so that the expected weight is exact. Probes of a converged tree have weight 1.
+	 */
+	int sampleWeight(){
+		if(!scaleSampledCounts || converged){
+			return 1;
+		}
+		double weight = sampleInterval / sampleProbability;
+		int whole = (int)weight;
+		if(weight > whole && ThreadLocalRandom.current().nextDouble() < weight - whole){
+			whole++;
+		}
+		return whole;
+	}
+
+	/*
+	 * Called after an adjusted search with the number of rotations it performed and their total psi.
+	 * Misses skipped because of adjustOnMiss are not reported. While converged, the adjusted searches are the probes.
+	 */
+	void recordAdjustment(long gain, int rotations){
+		if(minImprovementRate <= 0){
+			return;
+		}
+		windowGain += gain;
+		windowRotations += rotations;
+		if(++windowSearches >= window){
+			improvementRate = (double)windowGain / windowSearches;
+			rotationRate = (double)windowRotations / windowSearches;
+			converged = improvementRate < minImprovementRate;
+			clearWindow();
+		}
+	}
+}
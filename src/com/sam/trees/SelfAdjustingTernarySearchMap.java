@@ -0,0 +1,300 @@
+package com.sam.trees;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * Map from strings to values backed by a SelfAdjustingTernarySearchTree. The value is kept in the node of the last character of its key,
+ * so get returns it from the same traversal that does the conditional rotations of search, without a second lookup.
+ * Keys are in their natural order. Views returned by subMap, headMap and tailMap are backed by the same tree.
+ * Like the tree, the map is not thread safe, and get changes the shape of the tree.
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+public class SelfAdjustingTernarySearchMap<V> extends AbstractMap<String, V> implements SortedMap<String, V> {
+
+	private final SelfAdjustingTernarySearchTree tree;
+
+	//Map owning the tree and the size, this map itself unless it is a view.
+	private final SelfAdjustingTernarySearchMap<V> owner;
+
+	//Bounds of a view, low is inclusive and high is exclusive. null leaves a side open.
+	private final String low;
+	private final String high;
+
+	private int size;
+
+	public SelfAdjustingTernarySearchMap(){
+		tree = new SelfAdjustingTernarySearchTree();
+		owner = this;
+		low = null;
+		high = null;
+	}
+
+	private SelfAdjustingTernarySearchMap(SelfAdjustingTernarySearchMap<V> owner, String low, String high){
+		this.tree = owner.tree;
+		this.owner = owner;
+		this.low = low;
+		this.high = high;
+	}
+
+	public void setRestructuringPolicy(RestructuringPolicy policy){
+		tree.setRestructuringPolicy(policy);
+	}
+
+	public void setDecay(int interval, double factor){
+		tree.setDecay(interval, factor);
+	}
+
+	public void setMetrics(TreeMetrics metrics){
+		tree.setMetrics(metrics);
+	}
+
+	private boolean inRange(String key){
+		return (low == null || key.compareTo(low) >= 0) && (high == null || key.compareTo(high) < 0);
+	}
+
+	private void checkRange(String key){
+		if(!inRange(key)){
+			throw new IllegalArgumentException("Key "+key+" is out of the range of the view");
+		}
+	}
+
+	/*
+	 * Searches the key with conditional rotations and returns its value.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key){
+		if(!(key instanceof String) || !inRange((String)key)){
+			return null;
+		}
+		SelfAdjustingTernarySearchTree.TernaryTreeNode node = tree.searchNode((String)key);
+		return node == null ? null : (V)node.value;
+	}
+
+	@Override
+	public boolean containsKey(Object key){
+		if(!(key instanceof String) || !inRange((String)key)){
+			return false;
+		}
+		return tree.searchNode((String)key) != null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V put(String key, V value){
+		if(key.length() == 0){
+			throw new IllegalArgumentException("Empty keys are not supported");
+		}
+		checkRange(key);
+		SelfAdjustingTernarySearchTree.TernaryTreeNode node = tree.insertNode(key);
+		if(tree.setLeaf(key, node)){
+			owner.size++;
+		}
+		V previous = (V)node.value;
+		node.value = value;
+		return previous;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V remove(Object key){
+		if(!(key instanceof String) || ((String)key).length() == 0 || !inRange((String)key)){
+			return null;
+		}
+		SelfAdjustingTernarySearchTree.TernaryTreeNode node = tree.findNode((String)key);
+		if(node == null || !node.isLeaf){
+			return null;
+		}
+		V previous = (V)node.value;
+		tree.remove((String)key);
+		owner.size--;
+		return previous;
+	}
+
+	@Override
+	public int size(){
+		if(owner == this){
+			return size;
+		}
+		int count = 0;
+		for(Iterator<String> keys = tree.new RangeIterator(low, high); keys.hasNext(); keys.next()){
+			count++;
+		}
+		return count;
+	}
+
+	@Override
+	public Set<Map.Entry<String, V>> entrySet(){
+		return new AbstractSet<Map.Entry<String, V>>(){
+			@Override
+			public Iterator<Map.Entry<String, V>> iterator(){
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size(){
+				return SelfAdjustingTernarySearchMap.this.size();
+			}
+		};
+	}
+
+	/*
+	 * Removing a key prunes and rotates the tree under the pending frames of the range iterator, so remove restarts it
+	 * at the first key greater than the removed one, which is that key followed by the smallest character.
+	 */
+	private class EntryIterator implements Iterator<Map.Entry<String, V>>{
+		SelfAdjustingTernarySearchTree.RangeIterator keys = tree.new RangeIterator(low, high);
+		String lastKey;
+
+		public boolean hasNext(){
+			return keys.hasNext();
+		}
+
+		public Map.Entry<String, V> next(){
+			lastKey = keys.next();
+			return new Entry(lastKey, keys.lastNode);
+		}
+
+		public void remove(){
+			if(lastKey == null){
+				throw new IllegalStateException();
+			}
+			SelfAdjustingTernarySearchMap.this.remove(lastKey);
+			keys = tree.new RangeIterator(lastKey + '\u0000', high);
+			lastKey = null;
+		}
+	}
+
+	/*
+	 * Entry writing its value through to the node of its key.
+	 */
+	private class Entry implements Map.Entry<String, V>{
+		final String key;
+		final SelfAdjustingTernarySearchTree.TernaryTreeNode node;
+
+		Entry(String key, SelfAdjustingTernarySearchTree.TernaryTreeNode node){
+			this.key = key;
+			this.node = node;
+		}
+
+		public String getKey(){
+			return key;
+		}
+
+		@SuppressWarnings("unchecked")
+		public V getValue(){
+			return (V)node.value;
+		}
+
+		@SuppressWarnings("unchecked")
+		public V setValue(V value){
+			V previous = (V)node.value;
+			node.value = value;
+			return previous;
+		}
+
+		@Override
+		public boolean equals(Object other){
+			if(!(other instanceof Map.Entry)){
+				return false;
+			}
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>)other;
+			Object value = getValue();
+			return key.equals(entry.getKey()) && (value == null ? entry.getValue() == null : value.equals(entry.getValue()));
+		}
+
+		@Override
+		public int hashCode(){
+			Object value = getValue();
+			return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+		}
+
+		@Override
+		public String toString(){
+			return key+"="+getValue();
+		}
+	}
+
+	@Override
+	public Comparator<? super String> comparator(){
+		return null;
+	}
+
+	@Override
+	public String firstKey(){
+		Iterator<String> keys = tree.new RangeIterator(low, high);
+		if(!keys.hasNext()){
+			throw new NoSuchElementException();
+		}
+		return keys.next();
+	}
+
+	@Override
+	public String lastKey(){
+		String last = null;
+		for(Iterator<String> keys = tree.new RangeIterator(low, high); keys.hasNext();){
+			last = keys.next();
+		}
+		if(last == null){
+			throw new NoSuchElementException();
+		}
+		return last;
+	}
+
+	@Override
+	public SortedMap<String, V> subMap(String fromKey, String toKey){
+		if(fromKey.compareTo(toKey) > 0){
+			throw new IllegalArgumentException("fromKey "+fromKey+" is greater than toKey "+toKey);
+		}
+		return new SelfAdjustingTernarySearchMap<V>(owner, max(low, fromKey), min(high, toKey));
+	}
+
+	@Override
+	public SortedMap<String, V> headMap(String toKey){
+		return new SelfAdjustingTernarySearchMap<V>(owner, low, min(high, toKey));
+	}
+
+	@Override
+	public SortedMap<String, V> tailMap(String fromKey){
+		return new SelfAdjustingTernarySearchMap<V>(owner, max(low, fromKey), high);
+	}
+
+	private static String max(String bound, String key){
+		return bound == null || key.compareTo(bound) > 0 ? key : bound;
+	}
+
+	private static String min(String bound, String key){
+		return bound == null || key.compareTo(bound) < 0 ? key : bound;
+	}
+
+	public static void main(String args[]){
+		SelfAdjustingTernarySearchMap<Integer> map = new SelfAdjustingTernarySearchMap<Integer>();
+		String[] keys = {"font", "ask", "an", "fork", "for", "rest", "cap", "or"};
+		for(int i = 0; i < keys.length; i++){
+			map.put(keys[i], i);
+		}
+
+		System.out.println("Map - "+map);
+		System.out.println("Get cap - "+map.get("cap"));
+		System.out.println("Get tap - "+map.get("tap"));
+		System.out.println("Sub map [c, o) - "+map.subMap("c", "o"));
+		System.out.println("Head map before fork - "+map.headMap("fork"));
+		System.out.println("Tail map from for - "+map.tailMap("for"));
+		System.out.println("First "+map.firstKey()+", last "+map.lastKey());
+		System.out.println("Remove fork - "+map.remove("fork")+" "+map);
+		for(Iterator<Map.Entry<String, Integer>> entries = map.entrySet().iterator(); entries.hasNext();){
+			if(entries.next().getValue() % 2 == 0){
+				entries.remove();
+			}
+		}
+		System.out.println("Remove even values while iterating - "+map);
+	}
+}
@@ -1,7 +1,33 @@
 package com.sam.trees;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 /**
  * Ternary search tree with conditional splaying to bring the accessed node to the root.
  * Conditional rotation heuristics is used to optimize rotations.
@@ -22,9 +48,26 @@ public class SelfAdjustingTernarySearchTree {
         //then tou(i) = alpha(i) + tou(iL) + tou(iR);
         int tou;
         
+        //Number of searches which ended at this node, the access count of the key ending here.
+        int hits;
+        
+        //Upper bound of hits over this node and its left, eq and right subtrees, which prunes autocomplete.
+        int maxHits;
+        
+        //Epoch in which the counters were last aged.
+        int epoch;
+        
+        //Value mapped to the key ending at this node, used by SelfAdjustingTernarySearchMap.
+        Object value;
+        
+        //Number of keys ending at this node or in its left, eq and right subtrees, only kept while key counts are enabled.
+        int keys;
+        
         TernaryTreeNode left, right, eq;
         TernaryTreeNode(char data){
         	this.data = data;
+        	//A new node has nothing to age from earlier epochs.
+        	this.epoch = SelfAdjustingTernarySearchTree.this.epoch;
         }
         
         public String toString(){
@@ -32,245 +75,2386 @@ public class SelfAdjustingTernarySearchTree {
         }
     }
     
-    private TernaryTreeNode root = null;
+    private TernaryTreeNode root = null;
+    
+    TernaryTreeNode root(){
+    	return root;
+    }
+    
+    //Reusable views of keys given as char arrays and UTF-8 buffers, so that their lookups allocate nothing.
+    private final CharArraySequence charView = new CharArraySequence();
+    private final Utf8Sequence utf8View = new Utf8Sequence();
+    
+    public void insert(CharSequence data){
+    	TernaryTreeNode node = insertNode(data);
+    	if(node != null){
+    		setLeaf(data, node);
+    	}
+    }
+    
+    /*
+     * Inserts the text with a prior access count, e.g. its frequency in an earlier query log. The counters on its path are increased
+     * by weight with the conditional rotations of search, as if the text had been searched weight times, so a heavy key moves up as it is inserted.
+     */
+    public void insert(CharSequence data, int weight){
+    	if(weight < 0){
+    		throw new IllegalArgumentException("Negative weight "+weight+" for key "+data);
+    	}
+    	TernaryTreeNode node = insertNode(data);
+    	if(node == null){
+    		return;
+    	}
+    	setLeaf(data, node);
+    	if(weight > 0){
+    		adjust(data, weight);
+    	}
+    }
+    
+    /*
+     * Inserts every key of the map with its value as the weight, as insert(key, weight) does.
+     * An empty tree is built directly by weighted median split as bulkLoad does. Otherwise the keys are inserted from the heaviest to the
+     * lightest, so the heavy keys form the top of every BST they create and the rotations mostly have to place the lighter ones.
+     */
+    public void insertAll(Map<String, Integer> weights){
+    	List<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>();
+    	for(Map.Entry<String, Integer> entry : weights.entrySet()){
+    		if(entry.getValue() < 0){
+    			throw new IllegalArgumentException("Negative weight "+entry.getValue()+" for key "+entry.getKey());
+    		}
+    		if(entry.getKey().length() > 0){
+    			entries.add(entry);
+    		}
+    	}
+    	
+    	if(root == null){
+    		Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>(){
+    			public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b){
+    				return a.getKey().compareTo(b.getKey());
+    			}
+    		});
+    		String[] keys = new String[entries.size()];
+    		long[] prefixWeights = new long[keys.length+1];
+    		for(int i = 0; i < keys.length; i++){
+    			keys[i] = entries.get(i).getKey();
+    			prefixWeights[i+1] = prefixWeights[i] + entries.get(i).getValue();
+    		}
+    		build(keys, prefixWeights);
+    		if(metrics != null){
+    			metrics.setWeightedPathLength(weightedPathLength());
+    		}
+    		return;
+    	}
+    	
+    	Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>(){
+    		public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b){
+    			return b.getValue().compareTo(a.getValue());
+    		}
+    	});
+    	for(Map.Entry<String, Integer> entry : entries){
+    		insert(entry.getKey(), entry.getValue());
+    	}
+    }
+    
+    /*
+     * Inserts the length chars of the array starting at offset.
+     */
+    public void insert(char[] data, int offset, int length){
+    	insert(charView.reset(data, offset, length));
+    }
+    
+    /*
+     * Inserts the UTF-8 text between the position and the limit of the buffer, leaving the buffer unchanged.
+     */
+    public void insert(ByteBuffer utf8){
+    	insert(utf8View.reset(utf8));
+    }
+    
+    /*
+     * Marks the node of the last character of the text as the end of a key. Returns false if it already was.
+     */
+    boolean setLeaf(CharSequence data, TernaryTreeNode node){
+    	if(node.isLeaf){
+    		return false;
+    	}
+    	node.isLeaf = true;
+    	if(countKeys){
+    		//Every node on the path of the text has the new key in its subtree.
+    		TernaryTreeNode current = root;
+    		int pos = 0;
+    		while(true){
+    			current.keys++;
+    			char c = data.charAt(pos);
+    			if(c < current.data){
+    				current = current.left;
+    			}else if(c > current.data){
+    				current = current.right;
+    			}else{
+    				if(current == node){
+    					break;
+    				}
+    				pos++;
+    				current = current.eq;
+    			}
+    		}
+    	}
+    	return true;
+    }
+    
+    /*
+     * Adds the path of the text to the tree and returns the node of its last character, null for an empty text.
+     */
+    TernaryTreeNode insertNode(CharSequence data){
+    	if(data.length() == 0){
+    		return null;
+    	}
+    	if(root == null){
+    		root = new TernaryTreeNode(data.charAt(0));
+    	}
+    	
+    	TernaryTreeNode node = root;
+    	int pos = 0;
+    	while(true){
+    		char c = data.charAt(pos);
+    		if(c < node.data){
+    			if(node.left == null){
+    				node.left = new TernaryTreeNode(c);
+    			}
+    			node = node.left;
+    		}else if(c > node.data){
+    			if(node.right == null){
+    				node.right = new TernaryTreeNode(c);
+    			}
+    			node = node.right;
+    		}else{
+    			if(pos == data.length()-1){
+    				return node;
+    			}
+    			pos++;
+    			if(node.eq == null){
+    				node.eq = new TernaryTreeNode(data.charAt(pos));
+    			}
+    			node = node.eq;
+    		}
+    	}
+    }
+    
+    /*
+     * Builds a tree from keys in ascending order, e.g. a sorted dictionary. Duplicate and empty keys are skipped.
+     * The BST of every level is built by median split instead of by repeated inserts, so sorted input does not degenerate into chains.
+     */
+    public static SelfAdjustingTernarySearchTree bulkLoad(Iterator<String> sortedKeys){
+    	return bulkLoad(sortedKeys, null);
+    }
+    
+    /*
+     * Builds a tree from keys in ascending order with the initial access count of every key, weights[i] being the weight of the i-th key.
+     * The BST of every level is split at its weighted median and alpha/tou are initialized from the weights, so heavier keys start closer to the root.
+     */
+    public static SelfAdjustingTernarySearchTree bulkLoad(Iterator<String> sortedKeys, int[] weights){
+    	ArrayList<String> keys = new ArrayList<String>();
+    	ArrayList<Integer> keyWeights = new ArrayList<Integer>();
+    	String previous = null;
+    	int index = 0;
+    	while(sortedKeys.hasNext()){
+    		String key = sortedKeys.next();
+    		int weight = weights == null ? 0 : weights[index];
+    		index++;
+    		if(weight < 0){
+    			throw new IllegalArgumentException("Negative weight "+weight+" for key "+key);
+    		}
+    		if(key.length() == 0){
+    			continue;
+    		}
+    		if(previous != null){
+    			int order = previous.compareTo(key);
+    			if(order > 0){
+    				throw new IllegalArgumentException("Keys are not sorted, "+previous+" is followed by "+key);
+    			}
+    			if(order == 0){
+    				keyWeights.set(keyWeights.size()-1, saturatedAdd(keyWeights.get(keyWeights.size()-1), weight));
+    				continue;
+    			}
+    		}
+    		keys.add(key);
+    		keyWeights.add(weight);
+    		previous = key;
+    	}
+    	
+    	long[] prefixWeights = new long[keys.size()+1];
+    	for(int i = 0; i < keys.size(); i++){
+    		prefixWeights[i+1] = prefixWeights[i] + keyWeights.get(i);
+    	}
+    	
+    	SelfAdjustingTernarySearchTree tree = new SelfAdjustingTernarySearchTree();
+    	tree.build(keys.toArray(new String[keys.size()]), prefixWeights);
+    	return tree;
+    }
+    
+    /*
+     * Builds a tree from a file with one key per line in ascending order. A line may carry the weight of its key after a tab.
+     */
+    public static SelfAdjustingTernarySearchTree bulkLoad(Path sortedFile) throws IOException{
+    	ArrayList<String> keys = new ArrayList<String>();
+    	ArrayList<Integer> weights = new ArrayList<Integer>();
+    	BufferedReader reader = Files.newBufferedReader(sortedFile, StandardCharsets.UTF_8);
+    	try{
+    		String line;
+    		while((line = reader.readLine()) != null){
+    			int tab = line.indexOf('\t');
+    			if(tab < 0){
+    				keys.add(line);
+    				weights.add(0);
+    			}else{
+    				keys.add(line.substring(0, tab));
+    				weights.add(Integer.parseInt(line.substring(tab+1).trim()));
+    			}
+    		}
+    	}finally{
+    		reader.close();
+    	}
+    	
+    	int[] keyWeights = new int[weights.size()];
+    	for(int i = 0; i < keyWeights.length; i++){
+    		keyWeights[i] = weights.get(i);
+    	}
+    	return bulkLoad(keys.iterator(), keyWeights);
+    }
+    
+    /*
+     * Pending BST to be built from the keys in [lo, hi) at character position pos, to be linked to parent.
+     */
+    private static class BuildTask{
+    	final int lo, hi, pos;
+    	final TernaryTreeNode parent;
+    	final byte link;
+    	BuildTask(int lo, int hi, int pos, TernaryTreeNode parent, byte link){
+    		this.lo = lo;
+    		this.hi = hi;
+    		this.pos = pos;
+    		this.parent = parent;
+    		this.link = link;
+    	}
+    }
+    
+    /*
+     * Builds the tree from distinct sorted keys with an explicit work stack. The keys of a range share their first pos characters,
+     * so the characters at pos are in ascending order and every character forms a contiguous group.
+     * The group containing the weighted median key becomes the root of the range, the groups before and after it form its left and right subtrees.
+     */
+    private void build(String[] keys, long[] prefixWeights){
+    	root = null;
+    	if(keys.length == 0){
+    		return;
+    	}
+    	
+    	ArrayDeque<BuildTask> tasks = new ArrayDeque<BuildTask>();
+    	tasks.push(new BuildTask(0, keys.length, 0, null, STOP));
+    	while(!tasks.isEmpty()){
+    		BuildTask task = tasks.pop();
+    		int lo = task.lo;
+    		int hi = task.hi;
+    		int pos = task.pos;
+    		
+    		long total = prefixWeights[hi] - prefixWeights[lo];
+    		int median = weightedMedian(prefixWeights, lo, hi);
+    		
+    		char c = keys[median].charAt(pos);
+    		int groupStart = median;
+    		while(groupStart > lo && keys[groupStart-1].charAt(pos) == c){
+    			groupStart--;
+    		}
+    		int groupEnd = median+1;
+    		while(groupEnd < hi && keys[groupEnd].charAt(pos) == c){
+    			groupEnd++;
+    		}
+    		
+    		TernaryTreeNode node = new TernaryTreeNode(c);
+    		node.alpha = saturatedAdd(0, prefixWeights[groupEnd] - prefixWeights[groupStart]);
+    		node.tou = saturatedAdd(0, total);
+    		if(task.parent == null){
+    			root = node;
+    		}else if(task.link == LEFT){
+    			task.parent.left = node;
+    		}else if(task.link == RIGHT){
+    			task.parent.right = node;
+    		}else{
+    			task.parent.eq = node;
+    		}
+    		
+    		//The key ending at this character sorts first in its group.
+    		int eqStart = groupStart;
+    		if(keys[groupStart].length() == pos+1){
+    			node.isLeaf = true;
+    			node.hits = saturatedAdd(0, prefixWeights[groupStart+1] - prefixWeights[groupStart]);
+    			eqStart++;
+    		}
+    		if(lo < groupStart){
+    			tasks.push(new BuildTask(lo, groupStart, pos, node, LEFT));
+    		}
+    		if(groupEnd < hi){
+    			tasks.push(new BuildTask(groupEnd, hi, pos, node, RIGHT));
+    		}
+    		if(eqStart < groupEnd){
+    			tasks.push(new BuildTask(eqStart, groupEnd, pos+1, node, EQUAL));
+    		}
+    	}
+    	updateAggregates();
+    }
+    
+    /*
+     * Writes the shape and the counters of the tree to out in the format described in TreeSnapshot.
+     * Nodes are streamed in post order, so only a stack as deep as the tree is kept. The stream is flushed but not closed.
+     */
+    public void writeSnapshot(OutputStream out) throws IOException{
+    	DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out));
+    	output.writeInt(TreeSnapshot.MAGIC);
+    	output.writeInt(TreeSnapshot.VERSION);
+    	
+    	//Stack of nodes being written, the next child to visit and the record indices of the left and right children written so far.
+    	TernaryTreeNode[] nodes = new TernaryTreeNode[32];
+    	byte[] states = new byte[32];
+    	int[] lefts = new int[32];
+    	int[] rights = new int[32];
+    	int depth = 0;
+    	int written = 0;
+    	TernaryTreeNode next = root;
+    	while(next != null || depth > 0){
+    		if(next != null){
+    			if(depth == nodes.length){
+    				nodes = Arrays.copyOf(nodes, depth*2);
+    				states = Arrays.copyOf(states, depth*2);
+    				lefts = Arrays.copyOf(lefts, depth*2);
+    				rights = Arrays.copyOf(rights, depth*2);
+    			}
+    			nodes[depth] = next;
+    			states[depth] = 0;
+    			lefts[depth] = -1;
+    			rights[depth] = -1;
+    			depth++;
+    			next = null;
+    		}
+    		
+    		int top = depth-1;
+    		TernaryTreeNode node = nodes[top];
+    		switch(states[top]++){
+    		case 0:
+    			next = node.left;
+    			break;
+    		case 1:
+    			next = node.right;
+    			break;
+    		case 2:
+    			next = node.eq;
+    			break;
+    		default:
+    			age(node);
+    			output.writeChar(node.data);
+    			output.writeByte((node.isLeaf ? TreeSnapshot.LEAF : 0) | (node.eq != null ? TreeSnapshot.HAS_EQ : 0));
+    			output.writeInt(node.alpha);
+    			output.writeInt(node.tou);
+    			output.writeInt(lefts[top]);
+    			output.writeInt(rights[top]);
+    			output.writeInt(node.hits);
+    			
+    			nodes[top] = null;
+    			depth--;
+    			if(depth > 0){
+    				//The state of the parent was advanced past the child just written. The eq child is found as the previous record.
+    				if(states[depth-1] == 1){
+    					lefts[depth-1] = written;
+    				}else if(states[depth-1] == 2){
+    					rights[depth-1] = written;
+    				}
+    			}
+    			written++;
+    		}
+    	}
+    	output.flush();
+    }
+    
+    /*
+     * Maps a snapshot written by writeSnapshot and inflates it into a tree.
+     * Use TreeSnapshot.map to serve lookups from the mapped file without inflating it.
+     */
+    public static SelfAdjustingTernarySearchTree loadSnapshot(Path file) throws IOException{
+    	return TreeSnapshot.map(file).inflate();
+    }
+    
+    static SelfAdjustingTernarySearchTree inflate(TreeSnapshot snapshot){
+    	SelfAdjustingTernarySearchTree tree = new SelfAdjustingTernarySearchTree();
+    	int count = snapshot.nodeCount();
+    	TernaryTreeNode[] nodes = new TernaryTreeNode[count];
+    	for(int i = 0; i < count; i++){
+    		TernaryTreeNode node = tree.new TernaryTreeNode(snapshot.data(i));
+    		node.isLeaf = snapshot.isLeaf(i);
+    		node.alpha = snapshot.alpha(i);
+    		node.tou = snapshot.tou(i);
+    		node.hits = snapshot.hits(i);
+    		
+    		int left = snapshot.left(i);
+    		int right = snapshot.right(i);
+    		if(snapshot.hasEq(i) && i == 0){
+    			throw new IllegalStateException("Corrupt snapshot record "+i);
+    		}
+    		if(left >= 0){
+    			node.left = nodes[left];
+    		}
+    		if(right >= 0){
+    			node.right = nodes[right];
+    		}
+    		if(snapshot.hasEq(i)){
+    			node.eq = nodes[i-1];
+    		}
+    		nodes[i] = node;
+    	}
+    	tree.root = count == 0 ? null : nodes[count-1];
+    	tree.updateAggregates();
+    	return tree;
+    }
+    
+    /*
+     * Pending node of freeze, whose offset is to be stored at slot of the frozen array, NIL for the root.
+     */
+    private static class FreezeTask{
+    	final TernaryTreeNode node;
+    	final int slot;
+    	FreezeTask(TernaryTreeNode node, int slot){
+    		this.node = node;
+    		this.slot = slot;
+    	}
+    }
+    
+    /*
+     * Compiles the current shape of the tree into an immutable FrozenTernarySearchTree for read only lookups once the rotations have settled.
+     * The nodes are laid out in depth first order taking the child with the highest tou first, so that the hot paths learned by
+     * the conditional rotations become runs of adjacent nodes. Later changes to this tree do not affect the frozen image.
+     */
+    public FrozenTernarySearchTree freeze(){
+    	int[] nodes = new int[FrozenTernarySearchTree.NODE_SIZE * 64];
+    	int size = 0;
+    	TernaryTreeNode[] children = new TernaryTreeNode[3];
+    	int[] childSlots = new int[3];
+    	
+    	ArrayDeque<FreezeTask> tasks = new ArrayDeque<FreezeTask>();
+    	if(root != null){
+    		tasks.push(new FreezeTask(root, FrozenTernarySearchTree.NIL));
+    	}
+    	while(!tasks.isEmpty()){
+    		FreezeTask task = tasks.pop();
+    		TernaryTreeNode node = task.node;
+    		if(size == nodes.length){
+    			nodes = Arrays.copyOf(nodes, size*2);
+    		}
+    		int offset = size;
+    		size += FrozenTernarySearchTree.NODE_SIZE;
+    		if(task.slot != FrozenTernarySearchTree.NIL){
+    			nodes[task.slot] = offset;
+    		}
+    		nodes[offset] = node.data | (node.isLeaf ? FrozenTernarySearchTree.LEAF : 0);
+    		nodes[offset+1] = FrozenTernarySearchTree.NIL;
+    		nodes[offset+2] = FrozenTernarySearchTree.NIL;
+    		nodes[offset+3] = FrozenTernarySearchTree.NIL;
+    		
+    		//Order the children by ascending tou, eq last on ties, and push them in that order so the hottest one is placed next.
+    		int count = 0;
+    		count = addChild(children, childSlots, count, node.left, offset+1);
+    		count = addChild(children, childSlots, count, node.right, offset+2);
+    		count = addChild(children, childSlots, count, node.eq, offset+3);
+    		for(int i = 0; i < count; i++){
+    			tasks.push(new FreezeTask(children[i], childSlots[i]));
+    			children[i] = null;
+    		}
+    	}
+    	return new FrozenTernarySearchTree(Arrays.copyOf(nodes, size));
+    }
+    
+    /*
+     * Inserts the child into the first count entries of children, which are sorted by ascending tou, and returns the new count.
+     */
+    private int addChild(TernaryTreeNode[] children, int[] childSlots, int count, TernaryTreeNode child, int slot){
+    	if(child == null){
+    		return count;
+    	}
+    	int tou = tou(child);
+    	int i = count;
+    	while(i > 0 && tou(children[i-1]) > tou){
+    		children[i] = children[i-1];
+    		childSlots[i] = childSlots[i-1];
+    		i--;
+    	}
+    	children[i] = child;
+    	childSlots[i] = slot;
+    	return count+1;
+    }
+    
+    /*
+     * Searches the string, data without splaying the nodes during the traversal.
+     */
+    public boolean searchWithoutSplaying(CharSequence data){
+    	if(data.length() == 0){
+    		return true;
+    	}
+    	
+    	TernaryTreeNode node = root;
+    	int pos = 0;
+    	while(node != null){
+    		char c = data.charAt(pos);
+    		if(c < node.data){
+    			node = node.left;
+    		}else if(c > node.data){
+    			node = node.right;
+    		}else{
+    			if(pos == data.length()-1){
+    				return node.isLeaf;
+    			}
+    			pos++;
+    			node = node.eq;
+    		}
+    	}
+    	return false;
+    }
+    
+    public boolean searchWithoutSplaying(char[] data, int offset, int length){
+    	return searchWithoutSplaying(charView.reset(data, offset, length));
+    }
+    
+    public boolean searchWithoutSplaying(ByteBuffer utf8){
+    	return searchWithoutSplaying(utf8View.reset(utf8));
+    }
+    
+    /*
+     * Utility method to get tou value.
+     */
+    private int tou(TernaryTreeNode node){
+    	if(node==null)
+    		return 0;
+    	age(node);
+    	return node.tou;
+    }
+    
+    //Kind of step taken from a node on the search path. The two letter cases skip the child and continue at the grandchild.
+    private static final byte STOP = 0;
+    private static final byte LEFT_LEFT = 1;
+    private static final byte LEFT_RIGHT = 2;
+    private static final byte LEFT = 3;
+    private static final byte RIGHT_LEFT = 4;
+    private static final byte RIGHT_RIGHT = 5;
+    private static final byte RIGHT = 6;
+    private static final byte EQUAL = 7;
+    
+    //Reusable path stack of the nodes visited by search and the step taken from each of them.
+    private TernaryTreeNode[] pathNodes = new TernaryTreeNode[32];
+    private byte[] pathSteps = new byte[32];
+    
+    private void push(int depth, TernaryTreeNode node, byte step){
+    	if(depth == pathNodes.length){
+    		pathNodes = Arrays.copyOf(pathNodes, depth*2);
+    		pathSteps = Arrays.copyOf(pathSteps, depth*2);
+    	}
+    	pathNodes[depth] = node;
+    	pathSteps[depth] = step;
+    }
+    
+    /*
+     * Searches the given text using splaying with conditional rotations heuristics. A node which is found as part of search is splayed based on psi value.
+     * Let i be the current node, iP its parent node, iL its left child node and iR, the right child node then psi is defined as follows :-
+     * If i is the left child of iP :-
+     * psi = 2*tou(i) - tou(iR) - tou(iP);
+     * 
+     * If i is the right child of iP :-
+     * psi = 2*tou(i) - tou(iL) - tou(iP);
+     * 
+     * If i is the middle child of iP :-
+     * psi = 0;
+     * 
+     * If psi > 0 then rotations are performed. If it is not greater than zero then splaying is not done.
+     * 
+     * The search path is walked down in a loop and recorded on the path stack. The counters are updated and the psi checks
+     * and rotations are applied while unwinding the stack, bottom up, in the same order the recursive formulation would apply them.
+     * If the text is not found, the closest node on the path is still accessed.
+     */
+    public boolean search(CharSequence data){
+    	return searchNode(data) != null;
+    }
+    
+    /*
+     * Searches the length chars of the array starting at offset as search does.
+     */
+    public boolean search(char[] data, int offset, int length){
+    	return searchNode(charView.reset(data, offset, length)) != null;
+    }
+    
+    /*
+     * Searches the UTF-8 text between the position and the limit of the buffer as search does, decoding it during the walk.
+     * The buffer is left unchanged.
+     */
+    public boolean search(ByteBuffer utf8){
+    	return searchNode(utf8View.reset(utf8)) != null;
+    }
+    
+    /*
+     * Searches the text as search does and returns the node of its last character if the text is found, null otherwise.
+     */
+    TernaryTreeNode searchNode(CharSequence data){
+    	if(traceRecorder != null){
+    		traceRecorder.record(data);
+    	}
+    	if(data.length() == 0){
+    		return null;
+    	}
+    	
+    	countSearches(1);
+    	TernaryTreeNode textFound = null;
+    	int hash = 0;
+    	if(frontCache != null){
+    		hash = FrontCache.hash(data);
+    		textFound = frontCache.get(data, hash);
+    	}
+    	boolean cached = textFound != null;
+    	if(cached){
+    		//The access is applied to the counters with the next batch of cached hits.
+    		visited = 0;
+    	}else if(policy != null && !policy.shouldAdjust()){
+    		TernaryTreeNode node = findNode(data);
+    		textFound = node != null && node.isLeaf ? node : null;
+    	}else{
+    		textFound = adjust(data, policy == null ? 1 : policy.sampleWeight());
+    	}
+    	if(metrics != null){
+    		metrics.recordSearch(textFound != null, visited);
+    	}
+    	if(frontCache != null){
+    		if(!cached && textFound != null){
+    			frontCache.admit(data, hash, textFound);
+    		}
+    		frontCache.flushIfDue();
+    	}
+    	return textFound;
+    }
+    
+    /*
+     * Advances the decay epoch by the given number of searches.
+     */
+    private void countSearches(int searches){
+    	if(decayInterval > 0){
+    		searchesInEpoch += searches;
+    		if(searchesInEpoch >= decayInterval){
+    			int epochs = searchesInEpoch / decayInterval;
+    			epoch += epochs;
+    			searchesInEpoch %= decayInterval;
+    			if(metrics != null){
+    				metrics.scaleWeightedPathLength(Math.pow(decayFactor, epochs));
+    			}
+    		}
+    	}
+    }
+    
+    /*
+     * Applies weight searches of the non empty text to the counters and rotations and returns the node of the text if it is found.
+     * One walk increases the counters on the path by weight but checks psi only once per node, while weight separate searches could
+     * rotate the same nodes again. So the walk is repeated without increasing the counters, at most weight walks in all, until it
+     * no longer rotates. The result is still not the same as weight separate searches, whose psi checks see the counts grow one search at a time.
+     */
+    private TernaryTreeNode adjust(CharSequence data, int weight){
+    	TernaryTreeNode textFound = adjustPath(data, weight);
+    	int searchVisited = visited;
+    	long gain = pathGain;
+    	int totalRotations = rotations;
+    	for(int walks = 1; walks < weight && rotations > 0; walks++){
+    		adjustPath(data, 0);
+    		gain += pathGain;
+    		totalRotations += rotations;
+    	}
+    	visited = searchVisited;
+    	//A miss the policy does not adjust on was only walked, so it is not an adjusted search of the convergence window.
+    	if(policy != null && (textFound != null || policy.adjustOnMiss())){
+    		policy.recordAdjustment(gain, totalRotations);
+    	}
+    	return textFound;
+    }
+    
+    //Total psi of the rotations done by the last call of adjustPath, which is the decrease of the weighted path length.
+    private long pathGain;
+    
+    /*
+     * Walks the search path of the non empty text and applies the counter updates and conditional rotations of search.
+     * The counters on the path are increased by weight with a single psi check per node.
+     */
+    private TernaryTreeNode adjustPath(CharSequence data, int weight){
+    	TernaryTreeNode textFound = null;
+    	
+    	//Node matching the last character of the text, whose hits are increased, null if the walk fell off the tree.
+    	TernaryTreeNode terminal = null;
+    	TernaryTreeNode node = root;
+    	int pos = 0;
+    	int depth = 0;
+    	int count = 0;
+    	
+    	while(node != null){
+    		age(node);
+    		count++;
+    		char c = data.charAt(pos);
+    		if(c < node.data){//Key lies in left sub tree.
+    			TernaryTreeNode left = node.left;
+    			if(left == null){
+    				push(depth++, node, STOP);//Stop at the closest node.
+    				break;
+    			}
+    			age(left);
+    			count++;
+    			if(c < left.data){
+    				push(depth++, node, LEFT_LEFT);
+    				node = left.left;
+    			}else if(c > left.data){
+    				push(depth++, node, LEFT_RIGHT);
+    				node = left.right;
+    			}else{
+    				push(depth++, node, LEFT);
+    				node = left;
+    			}
+    		}else if(c > node.data){//Key lies in right subtree
+    			TernaryTreeNode right = node.right;
+    			if(right == null){
+    				push(depth++, node, STOP);
+    				break;
+    			}
+    			age(right);
+    			count++;
+    			if(c < right.data){
+    				push(depth++, node, RIGHT_LEFT);
+    				node = right.left;
+    			}else if(c > right.data){
+    				push(depth++, node, RIGHT_RIGHT);
+    				node = right.right;
+    			}else{
+    				push(depth++, node, RIGHT);
+    				node = right;
+    			}
+    		}else{
+    			//Current node matches with a character in the search text.
+    			//Search for next characters only if pos is not the last index of the search text.
+    			if(pos+1 != data.length()){
+    				push(depth++, node, EQUAL);
+    				pos++;
+    				node = node.eq;
+    			}else{
+    				push(depth++, node, STOP);
+    				terminal = node;
+    				textFound = node.isLeaf ? node : null;
+    				break;
+    			}
+    		}
+    	}
+    	
+    	visited = count;
+    	int pathLength = depth;
+    	touChange = 0;
+    	rotations = 0;
+    	pathGain = 0;
+    	
+    	if(textFound == null && policy != null && !policy.adjustOnMiss()){
+    		Arrays.fill(pathNodes, 0, depth, null);
+    		return null;
+    	}
+    	
+    	long gain = 0;
+    	
+    	//Subtree returned by the frame below the current one, null if the walk fell off the tree.
+    	TernaryTreeNode child = null;
+    	while(depth > 0){
+    		depth--;
+    		TernaryTreeNode current = pathNodes[depth];
+    		pathNodes[depth] = null;
+    		
+    		//Update the alpha and tou values.
+    		current.alpha = saturatedAdd(current.alpha, weight);
+    		current.tou = saturatedAdd(current.tou, weight);
+    		if(current == terminal){
+    			current.hits = saturatedAdd(current.hits, weight);
+    		}
+    		
+    		byte step = pathSteps[depth];
+    		switch(step){
+    		case LEFT_LEFT:
+    			current.left.left = child;
+    			if(child != null){
+    				long psi = 2L*tou(child) - tou(child.right) - tou(current.left);
+    				if(psi > 0){
+    					gain += psi;
+    					countRotation(TreeMetrics.LEFT_LEFT);
+    					//As it is Left - Left case, do a right rotation.
+    					//Note that only one right rotation is done unlike splay tree for Left - Left case. Rotation at the parent node is based on psi calculated at its level.
+    					current.left = rightRotate(current.left);
+    					
+    					//Update the tou values.
+    					updateTou(current.left.right);
+    					updateTou(current.left);
+    				}
+    			}
+    			break;
+    		case LEFT_RIGHT:
+    			current.left.right = child;
+    			if(child != null){
+    				long psi = 2L*tou(child) - tou(child.left) - tou(current.left);
+    				if(psi > 0){
+    					gain += psi;
+    					countRotation(TreeMetrics.LEFT_RIGHT);
+    					//As it is Left - Right case, do a left rotation.
+    					current.left = leftRotate(current.left);
+    					
+    					updateTou(current.left.left);
+    					updateTou(current.left);
+    				}
+    			}
+    			break;
+    		case LEFT:
+    			current.left = child;
+    			
+    			//i is the left child of iP. Here i is current.left and parent is current.
+    			long leftPsi = 2L*tou(current.left) - tou(current.left.right) - tou(current);
+    			if(leftPsi > 0){
+    				gain += leftPsi;
+    				countRotation(TreeMetrics.LEFT_EQUAL);
+    				TernaryTreeNode rotatedNode = rightRotate(current);
+    				
+    				updateTou(current);
+    				updateTou(rotatedNode);
+    				current = rotatedNode;
+    			}
+    			break;
+    		case RIGHT_LEFT:
+    			current.right.left = child;
+    			if(child != null){
+    				long psi = 2L*tou(child) - tou(child.right) - tou(current.right);
+    				if(psi > 0){
+    					gain += psi;
+    					countRotation(TreeMetrics.RIGHT_LEFT);
+    					//As it is Right - Left case, do a right rotation.
+    					current.right = rightRotate(current.right);
+    					
+    					//Update the tou values.
+    					updateTou(current.right.right);
+    					updateTou(current.right);
+    				}
+    			}
+    			break;
+    		case RIGHT_RIGHT:
+    			current.right.right = child;
+    			if(child != null){
+    				long psi = 2L*tou(child) - tou(child.left) - tou(current.right);
+    				if(psi > 0){
+    					gain += psi;
+    					countRotation(TreeMetrics.RIGHT_RIGHT);
+    					//As it is Right - Right case, do a left rotation.
+    					current.right = leftRotate(current.right);
+    					
+    					//Update the tou values.
+    					updateTou(current.right.left);
+    					updateTou(current.right);
+    				}
+    			}
+    			break;
+    		case RIGHT:
+    			current.right = child;
+    			
+    			//i is the right child of iP. Here i is current.right and parent is current.
+    			long rightPsi = 2L*tou(current.right) - tou(current.right.left) - tou(current);
+    			if(rightPsi > 0){
+    				gain += rightPsi;
+    				countRotation(TreeMetrics.RIGHT_EQUAL);
+    				TernaryTreeNode rotatedNode = leftRotate(current);
+    				
+    				updateTou(current);
+    				updateTou(rotatedNode);
+    				current = rotatedNode;
+    			}
+    			break;
+    		case EQUAL:
+    			current.eq = child;
+    			break;
+    		default:
+    			break;
+    		}
+    		
+    		//The middle node of a two step case is an ancestor of the terminal node too, whether or not it was rotated.
+    		if(step == LEFT_LEFT || step == LEFT_RIGHT){
+    			updateMaxHits(current.left);
+    		}else if(step == RIGHT_LEFT || step == RIGHT_RIGHT){
+    			updateMaxHits(current.right);
+    		}
+    		updateMaxHits(current);
+    		child = current;
+    	}
+    	if(child != null){
+    		root = child;
+    	}
+    	pathGain = gain;
+    	if(metrics != null){
+    		metrics.addWeightedPathLength((long)weight * pathLength + touChange);
+    	}
+    	
+    	return textFound;
+    }
+    
+    /*
+     * Searches a batch of texts and returns the set of the indexes, in the iteration order of the collection, of the texts which are found.
+     * The batch is sorted so that repeated texts are adjacent, and every distinct text is walked once: its counters are increased by the
+     * number of times it occurs, with the rotations of a weighted adjust, and whether it is found is taken from the same walk.
+     * Note that a weighted adjust is not the same as as many separate searches, see adjust.
+     */
+    public BitSet searchAll(Collection<String> data){
+    	final String[] batch = data.toArray(new String[data.size()]);
+    	if(traceRecorder != null){
+    		for(String text : batch){
+    			traceRecorder.record(text);
+    		}
+    	}
+    	Integer[] order = new Integer[batch.length];
+    	for(int i = 0; i < order.length; i++){
+    		order[i] = i;
+    	}
+    	Arrays.sort(order, new Comparator<Integer>(){
+    		public int compare(Integer i, Integer j){
+    			return batch[i].compareTo(batch[j]);
+    		}
+    	});
+    	
+    	BitSet found = new BitSet(batch.length);
+    	int start = 0;
+    	while(start < order.length){
+    		String text = batch[order[start]];
+    		int end = start+1;
+    		while(end < order.length && batch[order[end]].equals(text)){
+    			end++;
+    		}
+    		int count = end - start;
+    		
+    		if(text.length() > 0){
+    			countSearches(count);
+    			int weight = sampledWeight(count);
+    			TernaryTreeNode textFound;
+    			if(weight > 0){
+    				textFound = adjust(text, weight);
+    			}else{
+    				TernaryTreeNode node = findNode(text);
+    				textFound = node != null && node.isLeaf ? node : null;
+    			}
+    			if(textFound != null){
+    				for(int i = start; i < end; i++){
+    					found.set(order[i]);
+    				}
+    			}
+    			if(metrics != null){
+    				//Only the first occurrence walks the tree.
+    				metrics.recordSearch(textFound != null, visited);
+    				for(int i = 1; i < count; i++){
+    					metrics.recordSearch(textFound != null, 0);
+    				}
+    			}
+    		}
+    		start = end;
+    	}
+    	return found;
+    }
+    
+    /*
+     * Asks the policy about each of count searches of the same text and returns the total weight of those allowed to adjust the tree.
+     */
+    private int sampledWeight(int count){
+    	if(policy == null){
+    		return count;
+    	}
+    	long weight = 0;
+    	for(int i = 0; i < count; i++){
+    		if(policy.shouldAdjust()){
+    			weight += policy.sampleWeight();
+    		}
+    	}
+    	return saturatedAdd(0, weight);
+    }
+    
+    /*
+     * Searches a batch of texts as searchAll does and returns whether all of them are found.
+     */
+    public boolean containsAll(Collection<String> data){
+    	return searchAll(data).cardinality() == data.size();
+    }
+    
+    /*
+     * Removes the key from the tree. The searches which ended at the key, its hits, are subtracted from alpha and tou of every node on its
+     * left, right and eq path, the nodes these searches added to, so psi stays consistent for the remaining keys. Nodes which no longer lead to any key are pruned:
+     * such a node is rotated down towards its heavier child until it has at most one child and then spliced out of the BST of its level.
+     * If this empties the level, its parent is pruned in turn.
+     */
+    public boolean remove(String data){
+    	if(data.length() == 0){
+    		return false;
+    	}
+    	if(frontCache != null){
+    		frontCache.remove(data);
+    	}
+    	
+    	//pathSteps[i] is the link from pathNodes[i-1] to pathNodes[i], STOP for the root.
+    	TernaryTreeNode node = root;
+    	byte link = STOP;
+    	int pos = 0;
+    	int depth = 0;
+    	while(node != null){
+    		age(node);
+    		push(depth++, node, link);
+    		char c = data.charAt(pos);
+    		if(c < node.data){
+    			node = node.left;
+    			link = LEFT;
+    		}else if(c > node.data){
+    			node = node.right;
+    			link = RIGHT;
+    		}else{
+    			if(pos == data.length()-1){
+    				break;
+    			}
+    			pos++;
+    			node = node.eq;
+    			link = EQUAL;
+    		}
+    	}
+    	if(node == null || !node.isLeaf){
+    		Arrays.fill(pathNodes, 0, depth, null);
+    		return false;
+    	}
+    	
+    	int accesses = node.hits;
+    	node.hits = 0;
+    	touChange = 0;
+    	for(int i = 0; i < depth; i++){
+    		TernaryTreeNode current = pathNodes[i];
+    		int tou = Math.max(0, current.tou - accesses);
+    		touChange += tou - current.tou;
+    		current.tou = tou;
+    		current.alpha = Math.max(0, current.alpha - accesses);
+    		if(countKeys){
+    			current.keys--;
+    		}
+    	}
+    	node.isLeaf = false;
+    	node.value = null;
+    	
+    	int i = depth-1;
+    	while(i >= 0){
+    		TernaryTreeNode current = pathNodes[i];
+    		if(current.isLeaf || current.eq != null){
+    			break;
+    		}
+    		int levelStart = i;
+    		while(levelStart > 0 && pathSteps[levelStart] != EQUAL){
+    			levelStart--;
+    		}
+    		unlink(i, levelStart);
+    		if(levelStart == 0 || pathNodes[levelStart-1].eq != null){
+    			break;
+    		}
+    		i = levelStart-1;
+    	}
+    	Arrays.fill(pathNodes, 0, depth, null);
+    	if(metrics != null){
+    		metrics.addWeightedPathLength(touChange);
+    	}
+    	return true;
+    }
+    
+    /*
+     * Removes pathNodes[i] from the BST of its level, which starts at pathNodes[levelStart], and recomputes tou of its ancestors in the level.
+     */
+    private void unlink(int i, int levelStart){
+    	TernaryTreeNode node = pathNodes[i];
+    	TernaryTreeNode parent = i > 0 ? pathNodes[i-1] : null;
+    	byte link = pathSteps[i];
+    	
+    	//Nodes rotated above the removed node, from the top down.
+    	ArrayList<TernaryTreeNode> raised = new ArrayList<TernaryTreeNode>();
+    	while(node.left != null && node.right != null){
+    		TernaryTreeNode rotatedNode = tou(node.left) >= tou(node.right) ? rightRotate(node) : leftRotate(node);
+    		setChild(parent, link, rotatedNode);
+    		raised.add(rotatedNode);
+    		parent = rotatedNode;
+    		link = rotatedNode.left == node ? LEFT : RIGHT;
+    	}
+    	setChild(parent, link, node.left != null ? node.left : node.right);
+    	node.left = null;
+    	node.right = null;
+    	touChange -= node.tou;
+    	
+    	for(int j = raised.size()-1; j >= 0; j--){
+    		updateTou(raised.get(j));
+    	}
+    	for(int j = i-1; j >= levelStart; j--){
+    		updateTou(pathNodes[j]);
+    	}
+    }
+    
+    private void setChild(TernaryTreeNode parent, byte link, TernaryTreeNode child){
+    	if(parent == null){
+    		root = child;
+    	}else if(link == LEFT){
+    		parent.left = child;
+    	}else if(link == RIGHT){
+    		parent.right = child;
+    	}else{
+    		parent.eq = child;
+    	}
+    }
+    
+    /*
+     * Recomputes tou of the node from its alpha and the tou of its left and right children.
+     */
+    private void updateTou(TernaryTreeNode node){
+    	int tou = saturatedAdd(node.alpha, (long)tou(node.left) + tou(node.right));
+    	touChange += tou - node.tou;
+    	node.tou = tou;
+    	//Called for every node whose children changed, so the aggregates of the subtree follow the rotations too.
+    	updateMaxHits(node);
+    	if(countKeys){
+    		updateKeys(node);
+    	}
+    }
+    
+    private void updateMaxHits(TernaryTreeNode node){
+    	node.maxHits = Math.max(node.hits, Math.max(maxHits(node.eq), Math.max(maxHits(node.left), maxHits(node.right))));
+    }
+    
+    private int maxHits(TernaryTreeNode node){
+    	if(node == null){
+    		return 0;
+    	}
+    	age(node);
+    	return node.maxHits;
+    }
+    
+    /*
+     * Adds to a counter without overflowing, so that psi never changes its sign because of a wrapped counter.
+     * Shared with the other conditional rotation trees so they make the same rotation decisions.
+     */
+    static int saturatedAdd(int counter, long increment){
+    	long sum = counter + increment;
+    	return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)sum;
+    }
+    
+    //Answers repeated searches of the hottest keys ahead of the tree walk, null if there is no front cache.
+    private FrontCache frontCache;
+    
+    /*
+     * Puts a front cache of about capacity keys ahead of the tree walk of search, or removes it if capacity is 0.
+     * A search of a cached key returns its node without walking the tree. The hits of the cached keys are applied to the counters,
+     * with their conditional rotations, once every capacity hits as one weighted adjustment per key, so the restructuring still sees
+     * every access. Keys are admitted by their estimated frequency, see FrontCache.
+     */
+    public void setFrontCache(int capacity){
+    	if(capacity < 0){
+    		throw new IllegalArgumentException("Invalid front cache capacity "+capacity);
+    	}
+    	if(frontCache != null){
+    		frontCache.clear();
+    	}
+    	frontCache = capacity == 0 ? null : new FrontCache(this, capacity);
+    }
+    
+    /*
+     * Applies hits of a key answered by the front cache as if it had been searched hits times.
+     * The policy is asked about every hit, and the weighted adjust keeps rotating until the path is stable, as repeated searches would.
+     */
+    void applyCachedHits(String data, int hits){
+    	int weight = sampledWeight(hits);
+    	if(weight > 0){
+    		adjust(data, weight);
+    	}
+    }
+    
+    //Decides which searches restructure the tree, every search does if it is null.
+    private RestructuringPolicy policy;
+    
+    public void setRestructuringPolicy(RestructuringPolicy policy){
+    	this.policy = policy;
+    }
+    
+    //Records the searches and rotations of the tree, nothing is recorded if it is null.
+    private TreeMetrics metrics;
+    
+    //Number of nodes compared with the text by the last call of findNode or adjust.
+    int visited;
+    
+    //Number of rotations done by the current call of adjustPath.
+    private int rotations;
+    
+    //Change of the sum of tou since it was last cleared, which keeps the weighted path length of the metrics up to date.
+    private long touChange;
+    
+    /*
+     * Attaches metrics recording the searches of this tree and sets their weighted path length to the current one of the tree.
+     */
+    public void setMetrics(TreeMetrics metrics){
+    	this.metrics = metrics;
+    	if(metrics != null){
+    		metrics.setWeightedPathLength(weightedPathLength());
+    	}
+    }
+    
+    /*
+     * Sum of tou over all the nodes. An access of a node is counted in tou of the node and of each of its ancestors in the BST of its level,
+     * so this is the total weighted path length of the BSTs of all the levels. psi of a rotation is the amount by which it decreases this sum.
+     */
+    public long weightedPathLength(){
+    	long total = 0;
+    	if(root == null){
+    		return total;
+    	}
+    	ArrayDeque<TernaryTreeNode> stack = new ArrayDeque<TernaryTreeNode>();
+    	stack.push(root);
+    	while(!stack.isEmpty()){
+    		TernaryTreeNode node = stack.pop();
+    		total += tou(node);
+    		pushChildren(stack, node);
+    	}
+    	return total;
+    }
+    
+    /*
+     * Number of nodes in the tree.
+     */
+    public int nodeCount(){
+    	int count = 0;
+    	if(root == null){
+    		return count;
+    	}
+    	ArrayDeque<TernaryTreeNode> stack = new ArrayDeque<TernaryTreeNode>();
+    	stack.push(root);
+    	while(!stack.isEmpty()){
+    		count++;
+    		pushChildren(stack, stack.pop());
+    	}
+    	return count;
+    }
+    
+    //Records the searched texts, nothing is recorded if it is null.
+    private TraceRecorder traceRecorder;
+    
+    public void setTraceRecorder(TraceRecorder traceRecorder){
+    	this.traceRecorder = traceRecorder;
+    }
+    
+    /*
+     * Number of nodes compared with the text by a search which does not modify the tree.
+     */
+    int visitedNodes(CharSequence data){
+    	if(data.length() == 0){
+    		return 0;
+    	}
+    	findNode(data);
+    	return visited;
+    }
+    
+    private void countRotation(int rotationCase){
+    	rotations++;
+    	if(metrics != null){
+    		metrics.recordRotation(rotationCase);
+    	}
+    }
+    
+    //Counter aging. Every decayInterval searches start a new epoch and the counters of a node are multiplied by
+    //decayFactor once per elapsed epoch, lazily, the next time the node is visited. A factor of 1 disables aging.
+    private int decayInterval;
+    private double decayFactor = 1;
+    private int epoch;
+    private int searchesInEpoch;
+    
+    /*
+     * Enables aging of alpha and tou. Counters are multiplied by factor every interval searches,
+     * e.g. a factor of 0.5 halves them periodically. An interval of 0 disables aging.
+     */
+    public void setDecay(int interval, double factor){
+    	if(interval < 0 || factor <= 0 || factor > 1){
+    		throw new IllegalArgumentException("Invalid decay interval "+interval+" or factor "+factor);
+    	}
+    	decayInterval = interval;
+    	decayFactor = factor;
+    	searchesInEpoch = 0;
+    }
+    
+    /*
+     * Starts a new epoch, so that every node is decayed once more when it is visited next.
+     */
+    public void decay(){
+    	epoch++;
+    	searchesInEpoch = 0;
+    	if(metrics != null){
+    		metrics.scaleWeightedPathLength(decayFactor);
+    	}
+    }
+    
+    /*
+     * Applies the decay of the epochs elapsed since the node was last visited.
+     */
+    private void age(TernaryTreeNode node){
+    	if(node.epoch == epoch){
+    		return;
+    	}
+    	if(decayFactor < 1){
+    		double scale = Math.pow(decayFactor, epoch - node.epoch);
+    		node.alpha = (int)(node.alpha * scale);
+    		node.tou = (int)(node.tou * scale);
+    		node.hits = (int)(node.hits * scale);
+    		//Descendants not yet aged only have larger counts than their aged ones, so the scaled maximum stays an upper bound.
+    		node.maxHits = (int)(node.maxHits * scale);
+    	}
+    	node.epoch = epoch;
+    }
+    
+    /*
+     * Scales every tou value into the range [touSmin, touSmax] as
+     * tou(i) = (touSmax - touSmin) * (tou(i) - touMin)/(touMax - touMin) + touSmin
+     * where touMin and touMax are the minimum and maximum tou values in the tree. alpha and hits are scaled by the same ratio as tou.
+     */
+    public void normalize(int touSmin, int touSmax){
+    	if(touSmin < 0 || touSmax < touSmin){
+    		throw new IllegalArgumentException("Invalid range ["+touSmin+", "+touSmax+"]");
+    	}
+    	if(root == null){
+    		return;
+    	}
+    	
+    	int touMin = Integer.MAX_VALUE;
+    	int touMax = 0;
+    	ArrayDeque<TernaryTreeNode> stack = new ArrayDeque<TernaryTreeNode>();
+    	stack.push(root);
+    	while(!stack.isEmpty()){
+    		TernaryTreeNode node = stack.pop();
+    		age(node);
+    		touMin = Math.min(touMin, node.tou);
+    		touMax = Math.max(touMax, node.tou);
+    		pushChildren(stack, node);
+    	}
+    	
+    	stack.push(root);
+    	while(!stack.isEmpty()){
+    		TernaryTreeNode node = stack.pop();
+    		long scaled = touMax == touMin ? touSmin : (long)(touSmax - touSmin) * (node.tou - touMin) / (touMax - touMin) + touSmin;
+    		node.alpha = node.tou == 0 ? 0 : (int)((long)node.alpha * scaled / node.tou);
+    		node.hits = node.tou == 0 ? 0 : (int)((long)node.hits * scaled / node.tou);
+    		node.tou = (int)scaled;
+    		pushChildren(stack, node);
+    	}
+    	updateAggregates();
+    	if(metrics != null){
+    		metrics.setWeightedPathLength(weightedPathLength());
+    	}
+    }
+    
+    private static void pushChildren(ArrayDeque<TernaryTreeNode> stack, TernaryTreeNode node){
+    	if(node.left != null){
+    		stack.push(node.left);
+    	}
+    	if(node.eq != null){
+    		stack.push(node.eq);
+    	}
+    	if(node.right != null){
+    		stack.push(node.right);
+    	}
+    }
+    
+    //Levels with at most this many nodes are rebuilt as optimal BSTs, larger ones by weighted median split.
+    private static final int OPTIMAL_LEVEL_SIZE = 256;
+    
+    //Nodes whose eq level is still to be rebuilt by the incremental optimization in progress, null if there is none.
+    private ArrayDeque<TernaryTreeNode> pendingLevels;
+    
+    /*
+     * Rebuilds the BST of every level from the collected counters, see optimize(int).
+     */
+    public void optimize(){
+    	pendingLevels = null;
+    	while(optimize(Integer.MAX_VALUE)){
+    	}
+    }
+    
+    /*
+     * Rebuilds the BSTs of at most maxLevels levels and returns whether levels are left for the next call, so that a large tree
+     * can be optimized in steps between searches. The first call starts at the top level and later calls continue below the levels already rebuilt.
+     *
+     * Within a level a search compares the nodes on the path to the node matching its character, so the cost of the level is the sum of
+     * matches(i) * depth(i) over its nodes. A level of up to OPTIMAL_LEVEL_SIZE nodes is rebuilt as the BST minimizing this sum
+     * by Knuth's dynamic program, a larger one by splitting at the weighted median as Mehlhorn's approximation does.
+     * Only left and right links change: every node keeps its character, alpha and eq subtree, and tou is recomputed from alpha.
+     * The recomputed tou also includes the accesses which search does not add to the middle node of a two step case,
+     * so the weighted path length can grow even though the expected search cost drops.
+     * A level whose rebuilt BST would cost more than the current one, as the weighted median split can, keeps its current BST,
+     * so optimize never increases the expected search cost for the collected counters.
+     */
+    public boolean optimize(int maxLevels){
+    	if(maxLevels < 1){
+    		throw new IllegalArgumentException("Invalid number of levels "+maxLevels);
+    	}
+    	touChange = 0;
+    	if(pendingLevels == null){
+    		if(root == null){
+    			return false;
+    		}
+    		pendingLevels = new ArrayDeque<TernaryTreeNode>();
+    		root = rebuildLevel(root, pendingLevels);
+    		maxLevels--;
+    	}
+    	while(maxLevels > 0 && !pendingLevels.isEmpty()){
+    		TernaryTreeNode parent = pendingLevels.poll();
+    		//The level may have been pruned by a remove since the parent was queued.
+    		if(parent.eq != null){
+    			parent.eq = rebuildLevel(parent.eq, pendingLevels);
+    		}
+    		maxLevels--;
+    	}
+    	if(metrics != null){
+    		metrics.addWeightedPathLength(touChange);
+    	}
+    	if(pendingLevels.isEmpty()){
+    		pendingLevels = null;
+    		return false;
+    	}
+    	return true;
+    }
+    
+    /*
+     * Rebuilds the levels below the node of the prefix, i.e. the subtree of the keys extending it, as optimize does.
+     * Returns false if the prefix is not a path in the tree.
+     */
+    public boolean optimize(CharSequence prefix){
+    	if(prefix.length() == 0){
+    		optimize();
+    		return true;
+    	}
+    	TernaryTreeNode node = findNode(prefix);
+    	if(node == null){
+    		return false;
+    	}
+    	touChange = 0;
+    	ArrayDeque<TernaryTreeNode> levels = new ArrayDeque<TernaryTreeNode>();
+    	levels.add(node);
+    	while(!levels.isEmpty()){
+    		TernaryTreeNode parent = levels.poll();
+    		if(parent.eq != null){
+    			parent.eq = rebuildLevel(parent.eq, levels);
+    		}
+    	}
+    	if(metrics != null){
+    		metrics.addWeightedPathLength(touChange);
+    	}
+    	return true;
+    }
+    
+    /*
+     * Relinks the BST of a level with the minimum weighted path length for the matches of its nodes and returns its new root,
+     * or keeps the current BST and returns levelRoot if that costs no more. Nodes of the level having an eq subtree are added to levels.
+     */
+    private TernaryTreeNode rebuildLevel(TernaryTreeNode levelRoot, ArrayDeque<TernaryTreeNode> levels){
+    	//Nodes of the level in order, with their depths in the current BST.
+    	ArrayList<TernaryTreeNode> nodes = new ArrayList<TernaryTreeNode>();
+    	ArrayList<Integer> depths = new ArrayList<Integer>();
+    	ArrayDeque<TernaryTreeNode> stack = new ArrayDeque<TernaryTreeNode>();
+    	ArrayDeque<Integer> depthStack = new ArrayDeque<Integer>();
+    	TernaryTreeNode node = levelRoot;
+    	int depth = 1;
+    	while(node != null || !stack.isEmpty()){
+    		while(node != null){
+    			stack.push(node);
+    			depthStack.push(depth++);
+    			node = node.left;
+    		}
+    		node = stack.pop();
+    		depth = depthStack.pop();
+    		age(node);
+    		nodes.add(node);
+    		depths.add(depth);
+    		if(node.eq != null){
+    			levels.add(node);
+    		}
+    		node = node.right;
+    		depth++;
+    	}
+    	
+    	int n = nodes.size();
+    	long[] prefixWeights = new long[n+1];
+    	//Left and right links of the current BST, restored if the rebuilt one costs more.
+    	TernaryTreeNode[] links = new TernaryTreeNode[2*n];
+    	long cost = 0;
+    	for(int i = 0; i < n; i++){
+    		TernaryTreeNode levelNode = nodes.get(i);
+    		long weight = matches(levelNode);
+    		prefixWeights[i+1] = prefixWeights[i] + weight;
+    		cost += weight * depths.get(i);
+    		links[2*i] = levelNode.left;
+    		links[2*i+1] = levelNode.right;
+    		levelNode.left = null;
+    		levelNode.right = null;
+    	}
+    	int[][] roots = n <= OPTIMAL_LEVEL_SIZE ? optimalRoots(prefixWeights) : null;
+    	
+    	//Ranges [lo, hi) of the nodes still to be linked, with the index of their parent and the side they hang from.
+    	//Parents are linked before their children, so tou is recomputed in the reverse order.
+    	int[] ranges = new int[4*n];
+    	int[] order = new int[n];
+    	int[] newDepths = new int[n];
+    	long newCost = 0;
+    	int linked = 0;
+    	int top = 0;
+    	ranges[top++] = 0;
+    	ranges[top++] = n;
+    	ranges[top++] = -1;
+    	ranges[top++] = STOP;
+    	int levelRootIndex = -1;
+    	while(top > 0){
+    		byte link = (byte)ranges[--top];
+    		int parent = ranges[--top];
+    		int hi = ranges[--top];
+    		int lo = ranges[--top];
+    		int r = roots != null ? roots[lo][hi] : weightedMedian(prefixWeights, lo, hi);
+    		if(parent < 0){
+    			levelRootIndex = r;
+    		}else if(link == LEFT){
+    			nodes.get(parent).left = nodes.get(r);
+    		}else{
+    			nodes.get(parent).right = nodes.get(r);
+    		}
+    		newDepths[r] = parent < 0 ? 1 : newDepths[parent]+1;
+    		newCost += (prefixWeights[r+1] - prefixWeights[r]) * newDepths[r];
+    		order[linked++] = r;
+    		if(lo < r){
+    			ranges[top++] = lo;
+    			ranges[top++] = r;
+    			ranges[top++] = r;
+    			ranges[top++] = LEFT;
+    		}
+    		if(r+1 < hi){
+    			ranges[top++] = r+1;
+    			ranges[top++] = hi;
+    			ranges[top++] = r;
+    			ranges[top++] = RIGHT;
+    		}
+    	}
+    	if(newCost > cost){
+    		for(int i = 0; i < n; i++){
+    			nodes.get(i).left = links[2*i];
+    			nodes.get(i).right = links[2*i+1];
+    		}
+    		return levelRoot;
+    	}
+    	for(int i = n-1; i >= 0; i--){
+    		updateTou(nodes.get(order[i]));
+    	}
+    	return nodes.get(levelRootIndex);
+    }
+    
+    /*
+     * Number of searches matching the character of the node: those which ended at the node and those which continued into its eq subtree,
+     * which are the hits of the node and of every node of that subtree. Neither alpha nor tou of the eq root is used, as both also count
+     * the searches passing a node on their way to its children, and weights overcounted that way can make a rebuilt level slower.
+     * The eq subtree is walked for every node of every level, so a full optimize takes time proportional to the nodes times the key length.
+     */
+    private long matches(TernaryTreeNode node){
+    	long matches = hits(node);
+    	if(node.eq == null){
+    		return matches;
+    	}
+    	ArrayDeque<TernaryTreeNode> stack = new ArrayDeque<TernaryTreeNode>();
+    	stack.push(node.eq);
+    	while(!stack.isEmpty()){
+    		TernaryTreeNode below = stack.pop();
+    		matches += hits(below);
+    		pushChildren(stack, below);
+    	}
+    	return matches;
+    }
+    
+    /*
+     * Knuth's dynamic program for the optimal BST of n keys whose weights have the given prefix sums, without weights for unsuccessful searches.
+     * roots[i][j] is the root of the optimal BST of the keys in [i, j). The root of an optimal range lies between the roots of the ranges
+     * one key shorter on either side, so the program takes O(n^2) time.
+     * Among BSTs of equal cost the one with the smallest total depth is chosen, so keys never searched form a balanced BST rather than a chain.
+     */
+    private static int[][] optimalRoots(long[] prefixWeights){
+    	int n = prefixWeights.length - 1;
+    	long[][] cost = new long[n+1][n+1];
+    	int[][] depths = new int[n+1][n+1];
+    	int[][] roots = new int[n+1][n+1];
+    	for(int length = 1; length <= n; length++){
+    		for(int i = 0; i + length <= n; i++){
+    			int j = i + length;
+    			if(length == 1){
+    				roots[i][j] = i;
+    				cost[i][j] = prefixWeights[j] - prefixWeights[i];
+    				depths[i][j] = 1;
+    				continue;
+    			}
+    			long best = Long.MAX_VALUE;
+    			int bestDepth = Integer.MAX_VALUE;
+    			int bestRoot = i;
+    			for(int r = roots[i][j-1]; r <= roots[i+1][j]; r++){
+    				long c = cost[i][r] + cost[r+1][j];
+    				int d = depths[i][r] + depths[r+1][j];
+    				if(c < best || (c == best && d < bestDepth)){
+    					best = c;
+    					bestDepth = d;
+    					bestRoot = r;
+    				}
+    			}
+    			roots[i][j] = bestRoot;
+    			cost[i][j] = best + prefixWeights[j] - prefixWeights[i];
+    			depths[i][j] = bestDepth + length;
+    		}
+    	}
+    	return roots;
+    }
+    
+    /*
+     * Index of the key in [lo, hi) at which the prefix weight reaches half the weight of the range, the middle key if the range has no weight.
+     */
+    private static int weightedMedian(long[] prefixWeights, int lo, int hi){
+    	long total = prefixWeights[hi] - prefixWeights[lo];
+    	if(total == 0){
+    		return (lo + hi) >>> 1;
+    	}
+    	long half = prefixWeights[lo] + (total+1)/2;
+    	int a = lo, b = hi-1;
+    	while(a < b){
+    		int m = (a + b) >>> 1;
+    		if(prefixWeights[m+1] >= half){
+    			b = m;
+    		}else{
+    			a = m+1;
+    		}
+    	}
+    	return a;
+    }
+    
+    /*
+     * Returns the node matching the last character of the text without modifying the tree, or null if the text is not a path in the tree.
+     */
+    TernaryTreeNode findNode(CharSequence data){
+    	TernaryTreeNode node = root;
+    	int pos = 0;
+    	int count = 0;
+    	while(node != null){
+    		count++;
+    		char c = data.charAt(pos);
+    		if(c < node.data){
+    			node = node.left;
+    		}else if(c > node.data){
+    			node = node.right;
+    		}else{
+    			if(pos == data.length()-1){
+    				visited = count;
+    				return node;
+    			}
+    			pos++;
+    			node = node.eq;
+    		}
+    	}
+    	visited = count;
+    	return null;
+    }
+    
+    /*
+     * Entry of the best first search of autocomplete. Either a subtree whose keys all start with prefix followed by a character of
+     * its BST, weighted by the maxHits bound of its keys, or a complete key weighted by its hits.
+     */
+    private static class Completion implements Comparable<Completion>{
+    	final TernaryTreeNode node;
+    	final String text;
+    	final long weight;
+    	Completion(TernaryTreeNode node, String text, long weight){
+    		this.node = node;
+    		this.text = text;
+    		this.weight = weight;
+    	}
+    	
+    	public int compareTo(Completion other){
+    		if(weight != other.weight){
+    			return weight > other.weight ? -1 : 1;
+    		}
+    		//A subtree is expanded before a key of the same weight is returned, so keys of the same weight are all queued and returned in order.
+    		if((node == null) != (other.node == null)){
+    			return node == null ? 1 : -1;
+    		}
+    		return text.compareTo(other.text);
+    	}
+    }
+    
+    private int hits(TernaryTreeNode node){
+    	age(node);
+    	return node.hits;
+    }
+
+    
+    /*
+     * Returns at most k keys starting with prefix, most frequently accessed first, without restructuring the tree.
+     * The access count of a key is the hits of its last node, the number of searches which ended there. Subtrees are explored best first
+     * by maxHits, which bounds the hits of every node in them, so the search stops as soon as k keys outrank every unexplored subtree.
+     */
+    public List<String> autocomplete(String prefix, int k){
+    	List<String> completions = new ArrayList<String>();
+    	if(k <= 0){
+    		return completions;
+    	}
+    	
+    	PriorityQueue<Completion> queue = new PriorityQueue<Completion>();
+    	if(prefix.length() == 0){
+    		if(root != null){
+    			queue.add(new Completion(root, prefix, maxHits(root)));
+    		}
+    	}else{
+    		TernaryTreeNode node = findNode(prefix);
+    		if(node == null){
+    			return completions;
+    		}
+    		if(node.isLeaf){
+    			queue.add(new Completion(null, prefix, hits(node)));
+    		}
+    		if(node.eq != null){
+    			queue.add(new Completion(node.eq, prefix, maxHits(node.eq)));
+    		}
+    	}
+    	
+    	while(!queue.isEmpty() && completions.size() < k){
+    		Completion best = queue.poll();
+    		TernaryTreeNode node = best.node;
+    		if(node == null){
+    			completions.add(best.text);
+    			continue;
+    		}
+    		
+    		if(node.left != null){
+    			queue.add(new Completion(node.left, best.text, maxHits(node.left)));
+    		}
+    		if(node.right != null){
+    			queue.add(new Completion(node.right, best.text, maxHits(node.right)));
+    		}
+    		String text = best.text + node.data;
+    		if(node.isLeaf){
+    			queue.add(new Completion(null, text, hits(node)));
+    		}
+    		if(node.eq != null){
+    			queue.add(new Completion(node.eq, text, maxHits(node.eq)));
+    		}
+    	}
+    	return completions;
+    }
+    
+    //Character of a partial match pattern which matches any single character.
+    public static final char WILDCARD = '?';
+    
+    /*
+     * Returns the keys matching the pattern, in sorted order, where WILDCARD matches any character, e.g. "c?p" matches "cap" and "cup".
+     * The keys are found lazily as the iterator advances and the tree is not modified.
+     */
+    public Iterator<String> partialMatch(String pattern){
+    	return new HammingIterator(pattern, 0, true);
+    }
+    
+    /*
+     * Returns the keys of the same length as key differing from it in at most distance positions, in sorted order.
+     */
+    public Iterator<String> hammingNeighbors(String key, int distance){
+    	return new HammingIterator(key, distance, false);
+    }
+    
+    /*
+     * Returns the keys within Levenshtein distance, distance, of key, in sorted order.
+     */
+    public Iterator<String> nearNeighbors(String key, int distance){
+    	return new LevenshteinIterator(key, distance);
+    }
+    
+    /*
+     * Depth first traversal yielding keys lazily. Frames are popped from a stack: a frame either holds a result or a subtree to visit.
+     * Subtrees are pushed right, eq, result, left, so results come out in sorted order. The current text is kept in a shared buffer,
+     * a frame entering an eq subtree writes the character of its parent before it is visited.
+     */
+    private abstract class MatchIterator<F extends MatchFrame> implements Iterator<String>{
+    	final ArrayDeque<F> stack = new ArrayDeque<F>();
+    	char[] text = new char[16];
+    	String next;
+    	
+    	//Nodes of the last character of the next key and of the key last returned by next.
+    	TernaryTreeNode nextNode;
+    	TernaryTreeNode lastNode;
+    	
+    	public boolean hasNext(){
+    		while(next == null && !stack.isEmpty()){
+    			F frame = stack.pop();
+    			if(frame.result != null){
+    				next = frame.result;
+    				nextNode = frame.node;
+    			}else{
+    				if(frame.length >= text.length){
+    					text = Arrays.copyOf(text, Math.max(text.length*2, frame.length+1));
+    				}
+    				if(frame.parentChar >= 0){
+    					text[frame.length-1] = (char)frame.parentChar;
+    				}
+    				visit(frame);
+    			}
+    		}
+    		return next != null;
+    	}
+    	
+    	public String next(){
+    		if(!hasNext()){
+    			throw new NoSuchElementException();
+    		}
+    		String result = next;
+    		lastNode = nextNode;
+    		next = null;
+    		nextNode = null;
+    		return result;
+    	}
+    	
+    	/*
+    	 * Text of the frame followed by the character of its node.
+    	 */
+    	String key(F frame){
+    		text[frame.length] = frame.node.data;
+    		return new String(text, 0, frame.length+1);
+    	}
+    	
+    	abstract void visit(F frame);
+    }
+    
+    private static class MatchFrame{
+    	//Node to visit, or the node of the last character of the result.
+    	TernaryTreeNode node;
+    	
+    	//Length of the text before the node and the character to be written at length-1 when the frame is visited, -1 if none.
+    	int length;
+    	int parentChar = -1;
+    	
+    	String result;
+    }
     
-    public void insert(String data){
-    	TernaryTreeNode root = insert(this.root,data,0);
-        this.root = root;
+    private static class HammingFrame extends MatchFrame{
+    	int pos;
+    	int mismatches;
     }
     
-    private TernaryTreeNode insert(TernaryTreeNode root,String data,int pos){
-        if(pos == data.length()){
-            return root;
-        }
-        if(root == null){
-            root = new TernaryTreeNode(data.charAt(pos));
-            root.eq = insert(root.eq,data,pos+1);
-            if(pos == (data.length()-1)){
-                root.isLeaf = true;
-            }
-        }else{
-            if(root.data == data.charAt(pos)){
-                root.eq = insert(root.eq,data,pos+1);
-                if(pos == (data.length()-1)){
-                    root.isLeaf = true;
-                }
-            }
-            else if(root.data < data.charAt(pos)){
-                root.right = insert(root.right,data,pos);
-            }else{
-                root.left = insert(root.left,data,pos);
-            }
-        }
-        return root;
+    private class HammingIterator extends MatchIterator<HammingFrame>{
+    	final String pattern;
+    	final int distance;
+    	final boolean wildcard;
+    	
+    	HammingIterator(String pattern, int distance, boolean wildcard){
+    		this.pattern = pattern;
+    		this.distance = distance;
+    		this.wildcard = wildcard;
+    		if(root != null && pattern.length() > 0){
+    			stack.push(frame(root, 0, 0, 0, -1));
+    		}
+    	}
+    	
+    	HammingFrame frame(TernaryTreeNode node, int pos, int mismatches, int length, int parentChar){
+    		HammingFrame frame = new HammingFrame();
+    		frame.node = node;
+    		frame.pos = pos;
+    		frame.mismatches = mismatches;
+    		frame.length = length;
+    		frame.parentChar = parentChar;
+    		return frame;
+    	}
+    	
+    	void visit(HammingFrame frame){
+    		TernaryTreeNode node = frame.node;
+    		char c = pattern.charAt(frame.pos);
+    		boolean any = (wildcard && c == WILDCARD) || frame.mismatches < distance;
+    		
+    		//Once no mismatch is left, only the branch towards the pattern character can match.
+    		if(node.right != null && (any || c > node.data)){
+    			stack.push(frame(node.right, frame.pos, frame.mismatches, frame.length, -1));
+    		}
+    		int mismatches = frame.mismatches;
+    		if(c != node.data && !(wildcard && c == WILDCARD)){
+    			mismatches++;
+    		}
+    		if(mismatches <= distance){
+    			if(frame.pos+1 < pattern.length()){
+    				if(node.eq != null){
+    					stack.push(frame(node.eq, frame.pos+1, mismatches, frame.length+1, node.data));
+    				}
+    			}else if(node.isLeaf){
+    				HammingFrame result = new HammingFrame();
+    				result.node = node;
+    				result.result = key(frame);
+    				stack.push(result);
+    			}
+    		}
+    		if(node.left != null && (any || c < node.data)){
+    			stack.push(frame(node.left, frame.pos, frame.mismatches, frame.length, -1));
+    		}
+    	}
+    }
+    
+    private static class LevenshteinFrame extends MatchFrame{
+    	//Edit distances between the text before the node and every prefix of the key.
+    	int[] row;
+    }
+    
+    private class LevenshteinIterator extends MatchIterator<LevenshteinFrame>{
+    	final String key;
+    	final int distance;
+    	
+    	LevenshteinIterator(String key, int distance){
+    		this.key = key;
+    		this.distance = distance;
+    		int[] row = new int[key.length()+1];
+    		for(int i = 0; i < row.length; i++){
+    			row[i] = i;
+    		}
+    		if(root != null){
+    			stack.push(frame(root, row, 0, -1));
+    		}
+    	}
+    	
+    	LevenshteinFrame frame(TernaryTreeNode node, int[] row, int length, int parentChar){
+    		LevenshteinFrame frame = new LevenshteinFrame();
+    		frame.node = node;
+    		frame.row = row;
+    		frame.length = length;
+    		frame.parentChar = parentChar;
+    		return frame;
+    	}
+    	
+    	void visit(LevenshteinFrame frame){
+    		TernaryTreeNode node = frame.node;
+    		int[] row = frame.row;
+    		
+    		//Without any edit left, the next character has to match the key where the distance is exactly used up,
+    		//so the left and right subtrees are only visited if such a character lies on their side.
+    		int min = Integer.MAX_VALUE;
+    		int lowest = Character.MAX_VALUE + 1;
+    		int highest = -1;
+    		for(int i = 0; i < row.length; i++){
+    			min = Math.min(min, row[i]);
+    			if(row[i] == distance && i < key.length()){
+    				lowest = Math.min(lowest, key.charAt(i));
+    				highest = Math.max(highest, key.charAt(i));
+    			}
+    		}
+    		boolean any = min < distance;
+    		
+    		if(node.right != null && (any || highest > node.data)){
+    			stack.push(frame(node.right, row, frame.length, -1));
+    		}
+    		
+    		int[] next = new int[row.length];
+    		next[0] = row[0]+1;
+    		int nextMin = next[0];
+    		for(int i = 1; i < row.length; i++){
+    			int substitution = row[i-1] + (key.charAt(i-1) == node.data ? 0 : 1);
+    			next[i] = Math.min(substitution, Math.min(row[i]+1, next[i-1]+1));
+    			nextMin = Math.min(nextMin, next[i]);
+    		}
+    		if(nextMin <= distance){
+    			if(node.eq != null){
+    				stack.push(frame(node.eq, next, frame.length+1, node.data));
+    			}
+    			if(node.isLeaf && next[key.length()] <= distance){
+    				LevenshteinFrame result = new LevenshteinFrame();
+    				result.node = node;
+    				result.result = key(frame);
+    				stack.push(result);
+    			}
+    		}
+    		
+    		if(node.left != null && (any || lowest < node.data)){
+    			stack.push(frame(node.left, row, frame.length, -1));
+    		}
+    	}
     }
     
-    public boolean searchWithoutSplaying(String data){
-        return searchWithoutSplaying(root, data, 0);
+    private static class RangeFrame extends MatchFrame{
+    	//Whether the text before the node is already known to be greater than the lower bound or less than the upper bound.
+    	boolean aboveLow;
+    	boolean belowHigh;
     }
     
     /*
-     * Searches the string, data without splaying the nodes during the traversal.
+     * Iterates the keys in [low, high) in sorted order, a null bound leaves that side open.
+     * The text of a frame only has to be compared with the bounds at its own position while it equals their prefix,
+     * so every node is compared once and subtrees outside the range are never entered.
      */
-    private boolean searchWithoutSplaying(TernaryTreeNode root, String data, int pos){
-        if(pos == data.length()){
-            return true;
-        }
-        
-        if(root == null){
-            return false;
-        }
-        
-        if(root.data == data.charAt(pos)){
-            boolean result = searchWithoutSplaying(root.eq, data, pos+1);
-            if(pos == data.length() -1){
-                return result && root.isLeaf;
-            }
-            return result;
-        }else if(root.data < data.charAt(pos)){
-            return searchWithoutSplaying(root.right, data, pos);
-        }else{
-            return searchWithoutSplaying(root.left, data, pos);
-        }
+    class RangeIterator extends MatchIterator<RangeFrame>{
+    	final String low;
+    	final String high;
+    	
+    	RangeIterator(String low, String high){
+    		this.low = low;
+    		this.high = high;
+    		if(root != null){
+    			stack.push(frame(root, 0, -1, low == null, high == null));
+    		}
+    	}
+    	
+    	RangeFrame frame(TernaryTreeNode node, int length, int parentChar, boolean aboveLow, boolean belowHigh){
+    		RangeFrame frame = new RangeFrame();
+    		frame.node = node;
+    		frame.length = length;
+    		frame.parentChar = parentChar;
+    		frame.aboveLow = aboveLow;
+    		frame.belowHigh = belowHigh;
+    		return frame;
+    	}
+    	
+    	void visit(RangeFrame frame){
+    		TernaryTreeNode node = frame.node;
+    		int length = frame.length;
+    		
+    		//Order of the text followed by the node's character relative to the bounds' prefixes of the same length.
+    		int low = frame.aboveLow || length >= this.low.length() ? 1 : node.data - this.low.charAt(length);
+    		int high = frame.belowHigh ? -1 : length >= this.high.length() ? 1 : node.data - this.high.charAt(length);
+    		
+    		if(node.right != null && high < 0){
+    			stack.push(frame(node.right, length, -1, frame.aboveLow, frame.belowHigh));
+    		}
+    		if(low >= 0 && high <= 0){
+    			if(node.eq != null){
+    				stack.push(frame(node.eq, length+1, node.data, low > 0, high < 0));
+    			}
+    			if(node.isLeaf && (low > 0 || this.low.length() == length+1) && (high < 0 || this.high.length() > length+1)){
+    				RangeFrame result = new RangeFrame();
+    				result.node = node;
+    				result.result = key(frame);
+    				stack.push(result);
+    			}
+    		}
+    		if(node.left != null && low > 0){
+    			stack.push(frame(node.left, length, -1, frame.aboveLow, frame.belowHigh));
+    		}
+    	}
     }
     
-    //Variable to hold the result of current text search.
-    private boolean textFound;
+    /*
+     * Spliterator of the keys in sorted order, see KeySpliterator.
+     */
+    public Spliterator<String> spliterator(){
+    	return new KeySpliterator(root, "", null, null);
+    }
     
     /*
-     * Calls the search method which will return closest node and updates the variable, textFound.
+     * Stream of all the keys in sorted order, which can be parallel.
      */
-    public boolean search(String data){
-        textFound = false;
-        root = search(root, data, 0);
-        if(textFound){
-        	return true;
-        }
+    public Stream<String> keys(){
+    	return StreamSupport.stream(spliterator(), false);
+    }
+    
+    /*
+     * Stream of the keys in [low, high) in sorted order, a null bound leaves that side open.
+     */
+    public Stream<String> range(String low, String high){
+    	return StreamSupport.stream(new KeySpliterator(root, "", low, high), false);
+    }
+    
+    /*
+     * Stream of the keys starting with the prefix, including the prefix itself, in sorted order.
+     */
+    public Stream<String> keysWithPrefix(String prefix){
+    	if(prefix.length() == 0){
+    		return keys();
+    	}
+    	TernaryTreeNode node = findNode(prefix);
+    	KeySpliterator keys = new KeySpliterator(null, prefix, null, null);
+    	if(node != null){
+    		if(node.eq != null){
+    			keys.frames.addFirst(keys.frame(node.eq, prefix, true, true));
+    		}
+    		if(node.isLeaf){
+    			keys.frames.addFirst(keys.result(prefix, node));
+    		}
+    	}
+    	return StreamSupport.stream(keys, false);
+    }
+    
+    /*
+     * Part of the keys of a KeySpliterator, either a subtree of a level with the text before it or a single key.
+     */
+    private static class KeyFrame{
+    	TernaryTreeNode node;
+    	String text;
+    	boolean result;
     	
-    	return false;
+    	//Whether the text is already known to be greater than the lower bound or less than the upper bound.
+    	boolean aboveLow;
+    	boolean belowHigh;
     }
     
     /*
-     * Utility method to get tou value.
+     * Spliterator of the keys in a range in sorted order. The remaining keys are a sequence of frames in order, so a split hands out
+     * the first half of the frames, and a single subtree frame is first expanded into its left subtree, its own key, its eq subtree
+     * and its right subtree. The parts of a parallel stream are therefore whole subtrees of the tree.
+     * With key counts enabled, a spliterator over all the keys or a prefix knows its exact size.
+     * The tree must not be modified, which includes searching it, while a stream is consumed.
      */
-    private int tou(TernaryTreeNode node){
-    	if(node==null)
-    		return 0;
-    	return node.tou;
+    private class KeySpliterator implements Spliterator<String>{
+    	final ArrayDeque<KeyFrame> frames = new ArrayDeque<KeyFrame>();
+    	final String low;
+    	final String high;
+    	
+    	KeySpliterator(TernaryTreeNode node, String text, String low, String high){
+    		this.low = low;
+    		this.high = high;
+    		if(node != null){
+    			frames.add(frame(node, text, low == null, high == null));
+    		}
+    	}
+    	
+    	KeyFrame frame(TernaryTreeNode node, String text, boolean aboveLow, boolean belowHigh){
+    		KeyFrame frame = new KeyFrame();
+    		frame.node = node;
+    		frame.text = text;
+    		frame.aboveLow = aboveLow;
+    		frame.belowHigh = belowHigh;
+    		return frame;
+    	}
+    	
+    	KeyFrame result(String key, TernaryTreeNode node){
+    		KeyFrame frame = new KeyFrame();
+    		frame.node = node;
+    		frame.text = key;
+    		frame.result = true;
+    		return frame;
+    	}
+    	
+    	/*
+    	 * Replaces the subtree frame at the head by the parts of its subtree in the range, in order. Bounds are checked as in RangeIterator.
+    	 */
+    	void expand(){
+    		KeyFrame frame = frames.poll();
+    		TernaryTreeNode node = frame.node;
+    		int length = frame.text.length();
+    		int low = frame.aboveLow || length >= this.low.length() ? 1 : node.data - this.low.charAt(length);
+    		int high = frame.belowHigh ? -1 : length >= this.high.length() ? 1 : node.data - this.high.charAt(length);
+    		
+    		if(node.right != null && high < 0){
+    			frames.addFirst(frame(node.right, frame.text, frame.aboveLow, frame.belowHigh));
+    		}
+    		if(low >= 0 && high <= 0){
+    			String key = frame.text + node.data;
+    			if(node.eq != null){
+    				frames.addFirst(frame(node.eq, key, low > 0, high < 0));
+    			}
+    			if(node.isLeaf && (low > 0 || this.low.length() == length+1) && (high < 0 || this.high.length() > length+1)){
+    				frames.addFirst(result(key, node));
+    			}
+    		}
+    		if(node.left != null && low > 0){
+    			frames.addFirst(frame(node.left, frame.text, frame.aboveLow, frame.belowHigh));
+    		}
+    	}
+    	
+    	public boolean tryAdvance(Consumer<? super String> action){
+    		while(!frames.isEmpty()){
+    			if(frames.peek().result){
+    				action.accept(frames.poll().text);
+    				return true;
+    			}
+    			expand();
+    		}
+    		return false;
+    	}
+    	
+    	public Spliterator<String> trySplit(){
+    		while(frames.size() == 1 && !frames.peek().result){
+    			expand();
+    		}
+    		if(frames.size() < 2){
+    			return null;
+    		}
+    		KeySpliterator prefix = new KeySpliterator(null, "", low, high);
+    		for(int i = frames.size()/2; i > 0; i--){
+    			prefix.frames.add(frames.poll());
+    		}
+    		return prefix;
+    	}
+    	
+    	public long estimateSize(){
+    		if(!countKeys){
+    			return frames.isEmpty() ? 0 : Long.MAX_VALUE;
+    		}
+    		//Exact for frames inside both bounds, an upper bound otherwise.
+    		long size = 0;
+    		for(KeyFrame frame : frames){
+    			size += frame.result ? 1 : frame.node.keys;
+    		}
+    		return size;
+    	}
+    	
+    	public int characteristics(){
+    		int characteristics = ORDERED | SORTED | DISTINCT | NONNULL;
+    		if(countKeys && low == null && high == null){
+    			characteristics |= SIZED | SUBSIZED;
+    		}
+    		return characteristics;
+    	}
+    	
+    	public Comparator<? super String> getComparator(){
+    		//Natural order of the keys.
+    		return null;
+    	}
     }
     
+    //Whether every node keeps the number of keys in its subtree, so size, rank and select need not scan the keys.
+    private boolean countKeys;
+    
     /*
-     * Searches the given text using splaying with conditional rotations heuristics. A node which is found as part of search is splayed based on psi value.
-     * Let i be the current node, iP its parent node, iL its left child node and iR, the right child node then psi is defined as follows :-
-     * If i is the left child of iP :-
-     * psi = 2*tou(i) - tou(iR) - tou(iP);
-     * 
-     * If i is the right child of iP :-
-     * psi = 2*tou(i) - tou(iL) - tou(iP);
-     * 
-     * If i is the middle child of iP :-
-     * psi = 0;
-     * 
-     * If psi > 0 then rotations are performed. If it is not greater than zero then splaying is not done.
-     * 
+     * Enables or disables the key count of every node. With key counts, rank and select take one walk down the tree instead of a
+     * scan of the keys, and the spliterators of all the keys are sized. The counts cost an int per node and are updated by inserts,
+     * removals and rotations.
      */
-    private TernaryTreeNode search(TernaryTreeNode root, String data, int pos){
-        if(root == null){
-            return null;
-        }
-      
-        //Update the alpha and tou values.
-        root.alpha = root.alpha + 1;
-        root.tou = root.tou + 1;
-
-        //Key lies in left sub tree.
-    	if(root.data > data.charAt(pos)){
-    			if(root.left == null) 
-    				return root;//Return the closest node.
-    			
-    			//Left - Left case.
-    			if(root.left.data > data.charAt(pos)){
-    				
-    				root.left.left = search(root.left.left, data, pos);
-    				
-    				//Calculate psi value.
-    				int psi = 2*tou(root.left.left) - tou(root.left.left.right) - tou(root.left);
-    				
-    				if(psi > 0){
-    					//As it is Left - Left case, do a right rotation.
-    					//Note that only one right rotation is done unlike splay tree for Left - Left case. Rotation at the parent node is based on psi calculated at its level.
-    					root.left = rightRotate(root.left);
-    					
-    					//Update the tou values.
-    					root.left.right.tou = root.left.right.alpha + tou(root.left.right.left) + tou(root.left.right.right);
-    					root.left.tou = root.left.alpha + tou(root.left.left) + tou(root.left.right);
-    				}
+    public void setCountKeys(boolean enabled){
+    	if(enabled && !countKeys){
+    		countKeys = true;
+    		updateAggregates();
+    	}
+    	countKeys = enabled;
+    }
+    
+    /*
+     * Sets maxHits and, if enabled, the key count of every node, children before their parents.
+     */
+    private void updateAggregates(){
+    	if(root == null){
+    		return;
+    	}
+    	ArrayDeque<TernaryTreeNode> stack = new ArrayDeque<TernaryTreeNode>();
+    	ArrayList<TernaryTreeNode> preOrder = new ArrayList<TernaryTreeNode>();
+    	stack.push(root);
+    	while(!stack.isEmpty()){
+    		TernaryTreeNode node = stack.pop();
+    		preOrder.add(node);
+    		pushChildren(stack, node);
+    	}
+    	for(int i = preOrder.size()-1; i >= 0; i--){
+    		updateMaxHits(preOrder.get(i));
+    		if(countKeys){
+    			updateKeys(preOrder.get(i));
+    		}
+    	}
+    }
+    
+    private void updateKeys(TernaryTreeNode node){
+    	node.keys = (node.isLeaf ? 1 : 0) + keys(node.left) + keys(node.eq) + keys(node.right);
+    }
+    
+    private static int keys(TernaryTreeNode node){
+    	return node == null ? 0 : node.keys;
+    }
+    
+    /*
+     * Number of keys in the tree, read from the root with key counts and counted over every node without them.
+     */
+    public int size(){
+    	if(countKeys){
+    		return keys(root);
+    	}
+    	int size = 0;
+    	if(root == null){
+    		return size;
+    	}
+    	ArrayDeque<TernaryTreeNode> stack = new ArrayDeque<TernaryTreeNode>();
+    	stack.push(root);
+    	while(!stack.isEmpty()){
+    		TernaryTreeNode node = stack.pop();
+    		if(node.isLeaf){
+    			size++;
+    		}
+    		pushChildren(stack, node);
+    	}
+    	return size;
+    }
+    
+    /*
+     * Number of keys less than the text, whether or not the text is a key. With key counts this is a single walk down the tree,
+     * without them the keys are iterated in sorted order up to the text.
+     */
+    public int rank(CharSequence data){
+    	if(!countKeys){
+    		String text = data.toString();
+    		int rank = 0;
+    		Iterator<String> keys = keys().iterator();
+    		while(keys.hasNext() && keys.next().compareTo(text) < 0){
+    			rank++;
+    		}
+    		return rank;
+    	}
+    	int rank = 0;
+    	TernaryTreeNode node = root;
+    	int pos = 0;
+    	while(node != null && pos < data.length()){
+    		char c = data.charAt(pos);
+    		if(c < node.data){
+    			node = node.left;
+    		}else if(c > node.data){
+    			rank += node.keys - keys(node.right);
+    			node = node.right;
+    		}else{
+    			rank += keys(node.left);
+    			if(pos == data.length()-1){
+    				break;
     			}
-    			else if(root.left.data < data.charAt(pos)){//Left - Right case.
-
-    				root.left.right= search(root.left.right, data, pos);
-    				
-    				//Calculate psi value.
-    				int psi = 2*tou(root.left.right) - tou(root.left.right.left) - tou(root.left);
-    				
-    				if(psi > 0){
-    					//As it is Left - Right case, do a left rotation.
-    					root.left = leftRotate(root.left);
-    					
-    					root.left.left.tou = root.left.left.alpha + tou(root.left.left.left) + tou(root.left.left.right);
-    					root.left.tou = root.left.alpha + tou(root.left.left) + tou(root.left.right);
-    				}
-    			}else{
-    				//Equal case.
-    				root.left = search(root.left, data, pos);
-
-    				//i is the left child of iP. Here i is root.left and parent is root.
-    				int psi = 2*tou(root.left) - tou(root.left.right) - tou(root);
-    				
-    				if(psi > 0){
-    					TernaryTreeNode rotatedNode = rightRotate(root); 
-    					
-    					root.tou = root.alpha + tou(root.left) + tou(root.right);
-    					rotatedNode.tou = rotatedNode.alpha + tou(rotatedNode.left) + tou(rotatedNode.right);
-    					
-    					return rotatedNode;
-    				}
+    			//The key ending at this node is a proper prefix of the text.
+    			if(node.isLeaf){
+    				rank++;
     			}
-    			
-    			return root;
-    		}
-    		else if(root.data < data.charAt(pos)){//Key lies in right subtree
-    	        // Key is not in tree, return the closest node.
-    	        if (root.right == null) return root;
-    	 
-    	        //Right - Left case.
-    	        if(root.right.data > data.charAt(pos)){
-    				
-    				root.right.left = search(root.right.left, data, pos);
-    				
-    				//Calculate psi value.
-    				int psi = 2*tou(root.right.left) - tou(root.right.left.right) - tou(root.right);
-    				
-    				if(psi > 0){
-    					//As it is Right - Left case, do a right rotation.
-    					root.right = rightRotate(root.right);
-    					
-    					//Update the tou values.
-    					root.right.right.tou = root.right.right.alpha + tou(root.right.right.left) + tou(root.right.right.right);
-    					root.right.tou  = root.right.alpha + tou(root.right.left) + tou(root.right.right);
+    			pos++;
+    			node = node.eq;
+    		}
+    	}
+    	return rank;
+    }
+    
+    /*
+     * Key at the index in sorted order, the key whose rank is index. With key counts this is a single walk down the tree,
+     * without them the keys are iterated in sorted order up to the index.
+     */
+    public String select(int index){
+    	if(!countKeys){
+    		if(index >= 0){
+    			Iterator<String> keys = keys().iterator();
+    			for(int i = 0; keys.hasNext(); i++){
+    				String key = keys.next();
+    				if(i == index){
+    					return key;
     				}
     			}
-    	        else if(root.right.data < data.charAt(pos)){//Right - Right case.
-
-    				root.right.right= search(root.right.right, data, pos);
-    				
-    				//Calculate psi value.
-    				int psi = 2*tou(root.right.right) - tou(root.right.right.left) - tou(root.right);
-    				
-    				if(psi > 0){
-    					//As it is Right - Right case, do a left rotation.
-    					root.right = leftRotate(root.right);
-    					
-    					//Update the tou values.
-    					root.right.left.tou = root.right.left.alpha + tou(root.right.left.left) + tou(root.right.left.right);
-    					root.right.tou  = root.right.alpha + tou(root.right.left) + tou(root.right.right);
-    				}
-    			}else{
-    				//Equal case.
-    				root.right = search(root.right, data, pos);
-    				
-    				//i is the right child of iP. Here i is root.right and parent is root.
-    				int psi = 2*tou(root.right) - tou(root.right.left) - tou(root);
-    				
-    				if(psi > 0){
-    					TernaryTreeNode rotatedNode = leftRotate(root);
-    					
-    					root.tou = root.alpha + tou(root.left) + tou(root.right);
-    					rotatedNode.tou = rotatedNode.alpha + tou(rotatedNode.left) + tou(rotatedNode.right);
-    					
-    					return rotatedNode;
-    				}
+    		}
+    		throw new IndexOutOfBoundsException("Index "+index+", size "+size());
+    	}
+    	if(index < 0 || index >= keys(root)){
+    		throw new IndexOutOfBoundsException("Index "+index+", size "+keys(root));
+    	}
+    	StringBuilder key = new StringBuilder();
+    	TernaryTreeNode node = root;
+    	while(true){
+    		if(index < keys(node.left)){
+    			node = node.left;
+    			continue;
+    		}
+    		index -= keys(node.left);
+    		if(node.isLeaf){
+    			if(index == 0){
+    				return key.append(node.data).toString();
     			}
-	
-    	        return root;
-    	    }
-
-        else{
-        	//Current node matches with a character in the search text.
-	    	//Search for next characters only if pos is not the last index of the search text. 
-	    	if(pos+1 != data.length()){
-	    		root.eq = search(root.eq, data, pos+1);
-	    	}
-	    	
-	    	//If all characters are matched and pos is the last index of search text then update textFound as true.
-	    	if(pos == data.length()-1){    	    		
-	    		if(root.isLeaf){
-	    			textFound = true;
-	    		}
-	    	}
-	    	
-	    	return root;
-	    }
+    			index--;
+    		}
+    		if(index < keys(node.eq)){
+    			key.append(node.data);
+    			node = node.eq;
+    		}else{
+    			index -= keys(node.eq);
+    			node = node.right;
+    		}
+    	}
     }
     
     /*
@@ -440,6 +2624,57 @@ public class SelfAdjustingTernarySearchTree {
         System.out.println("Search tap - "+ternarySearchTree.searchWithoutSplaying("tap"));
         System.out.println("Search cap - "+ternarySearchTree.searchWithoutSplaying("cap"));
         System.out.println("Search or - "+ternarySearchTree.searchWithoutSplaying("or"));
+
+        System.out.println("Search all [fork, for, fo, cap, tap, for] - "+ternarySearchTree.searchAll(Arrays.asList("fork", "for", "fo", "cap", "tap", "for")));
+        char[] request = "GET fork".toCharArray();
+        System.out.println("Search fork in a char array - "+ternarySearchTree.searchWithoutSplaying(request, 4, 4));
+        System.out.println("Search rest in a UTF-8 buffer - "+ternarySearchTree.searchWithoutSplaying(ByteBuffer.wrap("rest".getBytes(StandardCharsets.UTF_8))));
+        
+        FrozenTernarySearchTree frozenTree = ternarySearchTree.freeze();
+        System.out.println("Frozen nodes "+frozenTree.nodeCount()+", contains cap - "+frozenTree.contains("cap")+", contains tap - "+frozenTree.contains("tap"));
+        
+        TreeMetrics metrics = new TreeMetrics();
+        ternarySearchTree.setMetrics(metrics);
+        ternarySearchTree.search("rest");
+        ternarySearchTree.search("tap");
+        System.out.println("Metrics - "+metrics.snapshot());
+        System.out.println("Remove for "+ternarySearchTree.remove("for")+", search fork - "+ternarySearchTree.searchWithoutSplaying("fork"));
+        System.out.println("Remove fork "+ternarySearchTree.remove("fork")+", search for - "+ternarySearchTree.searchWithoutSplaying("for"));
+        ternarySearchTree.levelOrder();
+        
+        ternarySearchTree.setFrontCache(16);
+        for(int i = 0; i < 20; i++){
+        	ternarySearchTree.search("cap");
+        }
+        System.out.println("Search cap with a front cache - "+ternarySearchTree.search("cap")+", remove cap "+ternarySearchTree.remove("cap")+", search cap - "+ternarySearchTree.search("cap"));
+        
+        //The same searches with and without a front cache should leave trees of about the same shape and counters.
+        SelfAdjustingTernarySearchTree cachedTree = new SelfAdjustingTernarySearchTree();
+        SelfAdjustingTernarySearchTree uncachedTree = new SelfAdjustingTernarySearchTree();
+        for(String key : new String[]{"font", "ask", "an", "fork", "for", "rest", "cap", "or"}){
+        	cachedTree.insert(key);
+        	uncachedTree.insert(key);
+        }
+        cachedTree.setFrontCache(16);
+        for(int i = 0; i < 40; i++){
+        	String key = i % 4 == 3 ? "rest" : "cap";
+        	cachedTree.search(key);
+        	uncachedTree.search(key);
+        }
+        cachedTree.setFrontCache(0);
+        System.out.println("With a front cache, root - "+cachedTree.root+", weighted path length "+cachedTree.weightedPathLength()+", without, root - "+uncachedTree.root+", weighted path length "+uncachedTree.weightedPathLength());
+        
+        SelfAdjustingTernarySearchTree weightedTree = new SelfAdjustingTernarySearchTree();
+        weightedTree.insert("an", 1);
+        weightedTree.insert("ask", 1);
+        weightedTree.insert("cap", 1);
+        weightedTree.insert("or", 40);
+        System.out.println("Weighted inserts, root - "+weightedTree.root+", weighted path length "+weightedTree.weightedPathLength());
+        weightedTree.optimize();
+        System.out.println("Optimized, root - "+weightedTree.root+", search or - "+weightedTree.searchWithoutSplaying("or"));
+        weightedTree.setCountKeys(true);
+        System.out.println("Keys - "+weightedTree.keys().collect(Collectors.toList())+", range [b, p) - "+weightedTree.range("b", "p").collect(Collectors.toList())+", prefix a - "+weightedTree.keysWithPrefix("a").collect(Collectors.toList()));
+        System.out.println("Rank of cap "+weightedTree.rank("cap")+", key 1 - "+weightedTree.select(1));
         TreeVisualizer.createTree(ternarySearchTree.root);
     }
 }
\ No newline at end of file
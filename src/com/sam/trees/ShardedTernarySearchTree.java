@@ -0,0 +1,166 @@
+package com.sam.trees;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread safe dictionary made of independent SelfAdjustingTernarySearchTree shards. A key belongs to the shard selected by the hash
+ * of the whole key, so keys spread over all the shards even when they start with few distinct characters, and every shard keeps
+ * its own conditional rotations for the keys it receives. Every shard has its own lock, so threads searching keys of different shards do not wait for each other.
+ * Bulk inserts fill the shards in parallel on a ForkJoinPool.
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+public class ShardedTernarySearchTree {
+
+	private final SelfAdjustingTernarySearchTree[] shards;
+	private final ReentrantLock[] locks;
+	private final ForkJoinPool pool;
+
+	/*
+	 * Creates a dictionary with four shards per available processor, bulk inserting on the common pool.
+	 */
+	public ShardedTernarySearchTree(){
+		this(Runtime.getRuntime().availableProcessors() * 4, ForkJoinPool.commonPool());
+	}
+
+	public ShardedTernarySearchTree(int shardCount, ForkJoinPool pool){
+		if(shardCount < 1){
+			throw new IllegalArgumentException("Invalid shard count "+shardCount);
+		}
+		shards = new SelfAdjustingTernarySearchTree[shardCount];
+		locks = new ReentrantLock[shardCount];
+		for(int i = 0; i < shardCount; i++){
+			shards[i] = new SelfAdjustingTernarySearchTree();
+			locks[i] = new ReentrantLock();
+		}
+		this.pool = pool;
+	}
+
+	public int shardCount(){
+		return shards.length;
+	}
+
+	/*
+	 * Shard of the key, chosen by the hash of the whole key as computed by FrontCache.hash. The first character alone would reach
+	 * at most as many shards as there are distinct first characters.
+	 */
+	private int shardOf(CharSequence key){
+		return (FrontCache.hash(key) & Integer.MAX_VALUE) % shards.length;
+	}
+
+	/*
+	 * Searches the key with conditional rotations in its shard.
+	 */
+	public boolean search(CharSequence key){
+		int shard = shardOf(key);
+		locks[shard].lock();
+		try{
+			return shards[shard].search(key);
+		}finally{
+			locks[shard].unlock();
+		}
+	}
+
+	/*
+	 * Searches the key without adjusting its shard. The shard is still locked, as other threads may be rotating it.
+	 */
+	public boolean searchWithoutSplaying(CharSequence key){
+		int shard = shardOf(key);
+		locks[shard].lock();
+		try{
+			return shards[shard].searchWithoutSplaying(key);
+		}finally{
+			locks[shard].unlock();
+		}
+	}
+
+	public void insert(CharSequence key){
+		int shard = shardOf(key);
+		locks[shard].lock();
+		try{
+			shards[shard].insert(key);
+		}finally{
+			locks[shard].unlock();
+		}
+	}
+
+	public boolean remove(String key){
+		int shard = shardOf(key);
+		locks[shard].lock();
+		try{
+			return shards[shard].remove(key);
+		}finally{
+			locks[shard].unlock();
+		}
+	}
+
+	/*
+	 * Sets the decay of the counters of every shard.
+	 */
+	public void setDecay(int interval, double factor){
+		for(int i = 0; i < shards.length; i++){
+			locks[i].lock();
+			try{
+				shards[i].setDecay(interval, factor);
+			}finally{
+				locks[i].unlock();
+			}
+		}
+	}
+
+	/*
+	 * Inserts the keys, grouped by shard, with the shards filled in parallel. Returns once all the keys are inserted.
+	 */
+	public void insertAll(Collection<? extends CharSequence> keys){
+		List<List<CharSequence>> groups = new ArrayList<List<CharSequence>>(shards.length);
+		for(int i = 0; i < shards.length; i++){
+			groups.add(new ArrayList<CharSequence>());
+		}
+		for(CharSequence key : keys){
+			groups.get(shardOf(key)).add(key);
+		}
+		pool.invoke(new InsertTask(groups, 0, shards.length));
+	}
+
+	/*
+	 * Inserts the groups of the shards in [lo, hi), splitting the range until a single shard is left.
+	 */
+	private class InsertTask extends RecursiveAction{
+		private static final long serialVersionUID = 1L;
+
+		final List<List<CharSequence>> groups;
+		final int lo, hi;
+
+		InsertTask(List<List<CharSequence>> groups, int lo, int hi){
+			this.groups = groups;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute(){
+			if(hi - lo > 1){
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new InsertTask(groups, lo, mid), new InsertTask(groups, mid, hi));
+				return;
+			}
+			List<CharSequence> group = groups.get(lo);
+			if(group.isEmpty()){
+				return;
+			}
+			locks[lo].lock();
+			try{
+				for(CharSequence key : group){
+					shards[lo].insert(key);
+				}
+			}finally{
+				locks[lo].unlock();
+			}
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package com.sam.trees;
 
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.Queue;
 /**
@@ -22,15 +23,41 @@ public class TenarySearchSplayTree {
 
 	private TernaryTreeNode root;
 
-	public void insert(String data){
+	//Reusable views of keys given as char arrays and UTF-8 buffers, so that their lookups allocate nothing.
+	private final CharArraySequence charView = new CharArraySequence();
+	private final Utf8Sequence utf8View = new Utf8Sequence();
+
+	public void insert(CharSequence data){
 		root = insert(root, data, 0);
 	}
 
-	public boolean search(String data){
+	public boolean search(CharSequence data){
 		return search(root, data, 0);
 	}
 
-	private boolean search(TernaryTreeNode root, String data, int pos){
+	/*
+	 * Inserts and searches the length chars of the array starting at offset.
+	 */
+	public void insert(char[] data, int offset, int length){
+		insert(charView.reset(data, offset, length));
+	}
+
+	public boolean search(char[] data, int offset, int length){
+		return search(charView.reset(data, offset, length));
+	}
+
+	/*
+	 * Inserts and searches the UTF-8 text between the position and the limit of the buffer, leaving the buffer unchanged.
+	 */
+	public void insert(ByteBuffer utf8){
+		insert(utf8View.reset(utf8));
+	}
+
+	public boolean search(ByteBuffer utf8){
+		return search(utf8View.reset(utf8));
+	}
+
+	private boolean search(TernaryTreeNode root, CharSequence data, int pos){
 		if(pos == data.length()){
 			return true;
 		}
@@ -38,6 +65,7 @@ public class TenarySearchSplayTree {
 		if(root == null){
 			return false;
 		}
+		visited++;
 		
 		if(root.data == data.charAt(pos)){
 			boolean result = search(root.eq, data, pos+1);
@@ -52,7 +80,7 @@ public class TenarySearchSplayTree {
 		}
 	}
 
-	private TernaryTreeNode insert(TernaryTreeNode root, String data, int pos){
+	private TernaryTreeNode insert(TernaryTreeNode root, CharSequence data, int pos){
 		if(pos == data.length()){
 			return root;
 		}
@@ -127,75 +155,173 @@ public class TenarySearchSplayTree {
 		return y;
 	}
 	
+	//Decides which searches splay the tree, every search does if it is null.
+	private RestructuringPolicy policy;
+
+	public void setRestructuringPolicy(RestructuringPolicy policy){
+		this.policy = policy;
+	}
+
+	//Records the searches and rotations of splaySearch, nothing is recorded if it is null.
+	private TreeMetrics metrics;
+
+	//Number of nodes compared with the text by the current search.
+	private int visited;
+
+	/*
+	 * Attaches metrics recording the searches of this tree. The splay tree keeps no access counts, so the weighted path length is not maintained.
+	 */
+	public void setMetrics(TreeMetrics metrics){
+		this.metrics = metrics;
+	}
+
+	//Records the searched texts, nothing is recorded if it is null.
+	private TraceRecorder traceRecorder;
+
+	public void setTraceRecorder(TraceRecorder traceRecorder){
+		this.traceRecorder = traceRecorder;
+	}
+
+	/*
+	 * Number of nodes compared with the text by a search which does not modify the tree.
+	 */
+	int visitedNodes(CharSequence data){
+		visited = 0;
+		search(data);
+		return visited;
+	}
+
+	private void countRotation(int rotationCase){
+		if(metrics != null){
+			metrics.recordRotation(rotationCase);
+		}
+	}
+
 	boolean wordFound;
-	public boolean splaySearch(String data){
+	public boolean splaySearch(CharSequence data){
+		if(traceRecorder != null){
+			traceRecorder.record(data);
+		}
+		visited = 0;
+		if(policy != null){
+			if(!policy.shouldAdjust()){
+				return recordSearch(search(data));
+			}
+			//Whether the search is successful is only known after splaying, so misses are found by a plain search first.
+			if(!policy.adjustOnMiss() && !search(data)){
+				return recordSearch(false);
+			}
+			visited = 0;
+		}
 		wordFound = false;
 		root = splaySearch(root, data, 0);
 		if(wordFound){
-			return true;
+			return recordSearch(true);
 		}
 
-		return false;
+		return recordSearch(false);
 	}
 
-	private TernaryTreeNode splaySearch(TernaryTreeNode root, String data, int pos){
+	public boolean splaySearch(char[] data, int offset, int length){
+		return splaySearch(charView.reset(data, offset, length));
+	}
+
+	public boolean splaySearch(ByteBuffer utf8){
+		return splaySearch(utf8View.reset(utf8));
+	}
+
+	private boolean recordSearch(boolean found){
+		if(metrics != null){
+			metrics.recordSearch(found, visited);
+		}
+		return found;
+	}
+
+	private TernaryTreeNode splaySearch(TernaryTreeNode root, CharSequence data, int pos){
 		if(pos == data.length() || root == null){
 			return root;
 		}
+		visited++;
 
 		//Key lies in left sub tree.
 		if(root.data > data.charAt(pos)){
 			if(root.left == null) 
 				return root;//This makes the node with data closest to given key to be set as root.
 
+			int rotationCase;
 			//Left - Left
 			if(root.left.data > data.charAt(pos)){
+				visited++;
+				rotationCase = TreeMetrics.LEFT_LEFT;
 
 				root.left.left = splaySearch(root.left.left, data, pos);
 
 				//First rotate for root, second rotation is done before returning if possible.
 				root = rightRotate(root);
+				countRotation(rotationCase);
 				
 			}else if(root.left.data < data.charAt(pos)){//Left - Right
+				visited++;
+				rotationCase = TreeMetrics.LEFT_RIGHT;
 
 				root.left.right= splaySearch(root.left.right, data, pos);
 
 				if(root.left.right != null){
 					root.left = leftRotate(root.left);
+					countRotation(rotationCase);
 				}
 			}else{
-				root.left.eq = splaySearch(root.left.eq, data, pos+1);
+				//Matched at the child, let it check the leaf flag and continue in its middle subtree.
+				rotationCase = TreeMetrics.LEFT_EQUAL;
+				root.left = splaySearch(root.left, data, pos);
 			}
 
 			//Do rotation for root.
-			return root.left == null ? root : rightRotate(root);
+			if(root.left == null){
+				return root;
+			}
+			countRotation(rotationCase);
+			return rightRotate(root);
 		}
 		else if(root.data < data.charAt(pos)){//Key lies in right subtree
 			// Key is not in tree, return root;
 			if (root.right == null) return root;
 
+			int rotationCase;
 			// Right - Left
 			if (root.right.data > data.charAt(pos))
 			{
+				visited++;
+				rotationCase = TreeMetrics.RIGHT_LEFT;
 				root.right.left = splaySearch(root.right.left, data, pos);
 
 				// Do rotation for root.right
-				if (root.right.left != null)
+				if (root.right.left != null){
 					root.right = rightRotate(root.right);
+					countRotation(rotationCase);
+				}
 			}
 			else if (root.right.data < data.charAt(pos))//Right - Right
 			{
+				visited++;
+				rotationCase = TreeMetrics.RIGHT_RIGHT;
 
 				root.right.right = splaySearch(root.right.right, data, pos);
 				
 				root = leftRotate(root);
+				countRotation(rotationCase);
 				
 			}else{
-				root.right.eq = splaySearch(root.right.eq, data, pos+1);
+				rotationCase = TreeMetrics.RIGHT_EQUAL;
+				root.right = splaySearch(root.right, data, pos);
 			}
 
 			// Do rotation for root
-			return (root.right == null)? root: leftRotate(root);
+			if(root.right == null){
+				return root;
+			}
+			countRotation(rotationCase);
+			return leftRotate(root);
 		}
 		else{
 			if(pos+1 != data.length()){
@@ -212,6 +338,48 @@ public class TenarySearchSplayTree {
 		}
 	}    
 
+	/*
+	 * Removes the key from the tree. Nodes which no longer lead to any key are spliced out of the BST of their level
+	 * by rotating their left child up until one of their children is empty.
+	 */
+	public boolean remove(String data){
+		if(data.length() == 0 || !search(data)){
+			return false;
+		}
+		root = remove(root, data, 0);
+		return true;
+	}
+
+	private TernaryTreeNode remove(TernaryTreeNode root, String data, int pos){
+		if(root.data == data.charAt(pos)){
+			if(pos == data.length()-1){
+				root.isLeaf = false;
+			}else{
+				root.eq = remove(root.eq, data, pos+1);
+			}
+			if(!root.isLeaf && root.eq == null){
+				return unlink(root);
+			}
+		}else if(root.data < data.charAt(pos)){
+			root.right = remove(root.right, data, pos);
+		}else{
+			root.left = remove(root.left, data, pos);
+		}
+		return root;
+	}
+
+	private TernaryTreeNode unlink(TernaryTreeNode node){
+		if(node.left == null){
+			return node.right;
+		}
+		if(node.right == null){
+			return node.left;
+		}
+		TernaryTreeNode rotated = rightRotate(node);
+		rotated.right = unlink(node);
+		return rotated;
+	}
+
 	public static void main(String args[]){
 		TenarySearchSplayTree ternarySearchTree = new TenarySearchSplayTree();
 		ternarySearchTree.insert("font");
@@ -0,0 +1,116 @@
+package com.sam.trees;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Records the keys searched on a tree into a compact binary trace, to be replayed by TraceReplay.
+ * Attach it with setTraceRecorder of SelfAdjustingTernarySearchTree or TenarySearchSplayTree.
+ *
+ * Format:
+ * header - magic (int), version (int), big endian
+ * records - one per search: the number of leading characters shared with the previous key, the number of remaining characters
+ * and the remaining characters, all as unsigned varints of 7 bits per byte. Keys from the same dictionary share long prefixes,
+ * so a record is usually a few bytes.
+ *
+ * Recording only appends to a buffer, a write error stops the recording and is thrown by close.
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+public class TraceRecorder implements Closeable, Flushable {
+
+	static final int MAGIC = 0x54535452;
+	static final int VERSION = 1;
+
+	private final OutputStream out;
+
+	private char[] previous = new char[64];
+	private int previousLength;
+	private long count;
+	private IOException error;
+
+	public TraceRecorder(OutputStream out) throws IOException{
+		this.out = new BufferedOutputStream(out, 1 << 16);
+		writeInt(MAGIC);
+		writeInt(VERSION);
+	}
+
+	public static TraceRecorder create(Path file) throws IOException{
+		return new TraceRecorder(Files.newOutputStream(file));
+	}
+
+	/*
+	 * Appends the key to the trace. Recorders can be shared by trees used from different threads.
+	 */
+	public synchronized void record(CharSequence key){
+		if(error != null){
+			return;
+		}
+		int length = key.length();
+		int shared = 0;
+		int limit = Math.min(length, previousLength);
+		while(shared < limit && previous[shared] == key.charAt(shared)){
+			shared++;
+		}
+		if(length > previous.length){
+			previous = Arrays.copyOf(previous, Math.max(length, previous.length*2));
+		}
+		try{
+			writeVarint(shared);
+			writeVarint(length - shared);
+			for(int i = shared; i < length; i++){
+				char c = key.charAt(i);
+				writeVarint(c);
+				previous[i] = c;
+			}
+		}catch(IOException e){
+			error = e;
+			return;
+		}
+		previousLength = length;
+		count++;
+	}
+
+	/*
+	 * Number of keys recorded.
+	 */
+	public synchronized long count(){
+		return count;
+	}
+
+	private void writeInt(int value) throws IOException{
+		out.write(value >>> 24);
+		out.write(value >>> 16);
+		out.write(value >>> 8);
+		out.write(value);
+	}
+
+	private void writeVarint(int value) throws IOException{
+		while((value & ~0x7F) != 0){
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	public synchronized void flush() throws IOException{
+		if(error != null){
+			throw error;
+		}
+		out.flush();
+	}
+
+	public synchronized void close() throws IOException{
+		try{
+			flush();
+		}finally{
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,288 @@
+package com.sam.trees;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Replays a trace written by TraceRecorder against every restructuring scheme and prints, per scheme, the mean number of nodes
+ * visited per lookup, the rotations done, the cost of the final tree and the throughput.
+ * The cost of the final tree is the mean number of nodes a lookup of the trace visits in the tree left after the replay, without
+ * adjusting it, which is the weighted path length of the tree under the traced access frequencies. It is comparable across schemes.
+ *
+ * Every scheme starts from a tree built by inserting the dictionary in file order, one key per line, or the distinct keys of the trace
+ * in the order of their first lookup when no dictionary is given.
+ *
+ * Usage: java com.sam.trees.TraceReplay trace [dictionary]
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+public class TraceReplay {
+
+	/*
+	 * Restructuring scheme under test, with its settings.
+	 */
+	static abstract class Scheme{
+		final String name;
+		final TreeMetrics metrics = new TreeMetrics();
+
+		Scheme(String name){
+			this.name = name;
+		}
+
+		abstract void build(List<String> keys);
+
+		abstract boolean search(String key);
+
+		abstract int visitedNodes(String key);
+
+		/*
+		 * Mean nodes visited per lookup during the replay.
+		 */
+		double meanVisited(){
+			return metrics.getMeanPathLength();
+		}
+	}
+
+	static class ConditionalScheme extends Scheme{
+		final int decayInterval;
+		final double decayFactor;
+		final RestructuringPolicy policy;
+		SelfAdjustingTernarySearchTree tree;
+
+		ConditionalScheme(String name, int decayInterval, double decayFactor, RestructuringPolicy policy){
+			super(name);
+			this.decayInterval = decayInterval;
+			this.decayFactor = decayFactor;
+			this.policy = policy;
+		}
+
+		void build(List<String> keys){
+			tree = new SelfAdjustingTernarySearchTree();
+			for(String key : keys){
+				tree.insert(key);
+			}
+			if(decayInterval > 0){
+				tree.setDecay(decayInterval, decayFactor);
+			}
+			tree.setRestructuringPolicy(policy);
+			tree.setMetrics(metrics);
+		}
+
+		boolean search(String key){
+			return tree.search(key);
+		}
+
+		int visitedNodes(String key){
+			return tree.visitedNodes(key);
+		}
+	}
+
+	static class SplayScheme extends Scheme{
+		TenarySearchSplayTree tree;
+
+		SplayScheme(){
+			super("splay");
+		}
+
+		void build(List<String> keys){
+			tree = new TenarySearchSplayTree();
+			for(String key : keys){
+				tree.insert(key);
+			}
+			tree.setMetrics(metrics);
+		}
+
+		boolean search(String key){
+			return tree.splaySearch(key);
+		}
+
+		int visitedNodes(String key){
+			return tree.visitedNodes(key);
+		}
+	}
+
+	/*
+	 * The tree as built, never adjusted.
+	 */
+	static class StaticScheme extends Scheme{
+		SelfAdjustingTernarySearchTree tree;
+
+		StaticScheme(){
+			super("static");
+		}
+
+		void build(List<String> keys){
+			tree = new SelfAdjustingTernarySearchTree();
+			for(String key : keys){
+				tree.insert(key);
+			}
+		}
+
+		//The tree has no metrics of its own as it is never adjusted, so the lookups are recorded here.
+		boolean search(String key){
+			if(key.isEmpty()){
+				return tree.searchWithoutSplaying(key);
+			}
+			SelfAdjustingTernarySearchTree.TernaryTreeNode node = tree.findNode(key);
+			boolean found = node != null && node.isLeaf;
+			metrics.recordSearch(found, tree.visited);
+			return found;
+		}
+
+		int visitedNodes(String key){
+			return tree.visitedNodes(key);
+		}
+	}
+
+	static List<Scheme> schemes(int traceLength){
+		List<Scheme> schemes = new ArrayList<Scheme>();
+		schemes.add(new StaticScheme());
+		schemes.add(new SplayScheme());
+		schemes.add(new ConditionalScheme("conditional", 0, 1, null));
+
+		int epoch = Math.max(1, traceLength / 100);
+		schemes.add(new ConditionalScheme("decay-0.5/"+epoch, epoch, 0.5, null));
+		schemes.add(new ConditionalScheme("decay-0.9/"+epoch, epoch, 0.9, null));
+
+		RestructuringPolicy hitsOnly = new RestructuringPolicy();
+		hitsOnly.setAdjustOnMiss(false);
+		schemes.add(new ConditionalScheme("hits-only", 0, 1, hitsOnly));
+
+		RestructuringPolicy sampled = new RestructuringPolicy();
+		sampled.setSampleInterval(8);
+		schemes.add(new ConditionalScheme("sampled-1/8", 0, 1, sampled));
+
+		RestructuringPolicy scaled = new RestructuringPolicy();
+		scaled.setSampleProbability(0.125);
+		scaled.setScaleSampledCounts(true);
+		schemes.add(new ConditionalScheme("scaled-p0.125", 0, 1, scaled));
+
+		RestructuringPolicy converging = new RestructuringPolicy();
+		converging.setMinImprovementRate(1, 10000);
+		converging.setProbeInterval(100);
+		schemes.add(new ConditionalScheme("converging", 0, 1, converging));
+		return schemes;
+	}
+
+	/*
+	 * Reads the keys of a trace written by TraceRecorder.
+	 */
+	static List<String> readTrace(Path file) throws IOException{
+		List<String> keys = new ArrayList<String>();
+		InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+		try{
+			if(readInt(in) != TraceRecorder.MAGIC){
+				throw new IOException(file+" is not a trace");
+			}
+			int version = readInt(in);
+			if(version != TraceRecorder.VERSION){
+				throw new IOException("Unsupported trace version "+version+" in "+file);
+			}
+			char[] key = new char[64];
+			int shared;
+			while((shared = readVarint(in, true)) >= 0){
+				int rest = readVarint(in, false);
+				int length = shared + rest;
+				if(length > key.length){
+					key = Arrays.copyOf(key, Math.max(length, key.length*2));
+				}
+				for(int i = shared; i < length; i++){
+					key[i] = (char)readVarint(in, false);
+				}
+				keys.add(new String(key, 0, length));
+			}
+		}finally{
+			in.close();
+		}
+		return keys;
+	}
+
+	private static int readInt(InputStream in) throws IOException{
+		int value = 0;
+		for(int i = 0; i < 4; i++){
+			int b = in.read();
+			if(b < 0){
+				throw new EOFException();
+			}
+			value = (value << 8) | b;
+		}
+		return value;
+	}
+
+	/*
+	 * Reads an unsigned varint. Returns -1 at the end of the stream if that is allowed before the first byte.
+	 */
+	private static int readVarint(InputStream in, boolean endAllowed) throws IOException{
+		int value = 0;
+		int shift = 0;
+		while(true){
+			int b = in.read();
+			if(b < 0){
+				if(endAllowed && shift == 0){
+					return -1;
+				}
+				throw new EOFException("Truncated trace");
+			}
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0){
+				return value;
+			}
+			shift += 7;
+		}
+	}
+
+	/*
+	 * Mean number of nodes visited by the lookups of the trace in the current tree of the scheme, without adjusting it.
+	 */
+	static double cost(Scheme scheme, List<String> trace){
+		long visited = 0;
+		for(String key : trace){
+			visited += scheme.visitedNodes(key);
+		}
+		return trace.isEmpty() ? 0 : (double)visited / trace.size();
+	}
+
+	public static void main(String args[]) throws IOException{
+		if(args.length < 1){
+			System.out.println("Usage: java com.sam.trees.TraceReplay trace [dictionary]");
+			return;
+		}
+		List<String> trace = readTrace(Paths.get(args[0]));
+		List<String> dictionary;
+		if(args.length > 1){
+			dictionary = Files.readAllLines(Paths.get(args[1]), StandardCharsets.UTF_8);
+		}else{
+			Set<String> distinct = new LinkedHashSet<String>(trace);
+			dictionary = new ArrayList<String>(distinct);
+		}
+		System.out.println("Trace of "+trace.size()+" lookups, dictionary of "+dictionary.size()+" keys");
+		System.out.println(String.format("%-16s %12s %12s %12s %12s %8s",
+				"scheme", "visited/op", "rotations", "final cost", "lookups/s", "hits"));
+
+		for(Scheme scheme : schemes(trace.size())){
+			scheme.build(dictionary);
+			int hits = 0;
+			long start = System.nanoTime();
+			for(String key : trace){
+				if(scheme.search(key)){
+					hits++;
+				}
+			}
+			long elapsed = System.nanoTime() - start;
+			System.out.println(String.format("%-16s %12.2f %12d %12.2f %12.0f %8.3f", scheme.name, scheme.meanVisited(),
+					scheme.metrics.getRotations(), cost(scheme, trace), trace.size() * 1e9 / Math.max(1, elapsed),
+					trace.isEmpty() ? 0 : hits / (double)trace.size()));
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package com.sam.trees;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters of the searches done on a tree, attached with setMetrics of SelfAdjustingTernarySearchTree or TenarySearchSplayTree.
+ * A tree without metrics does not record anything. The counters can be read while the tree is searched, either through the
+ * getters, which are also exposed over JMX once the metrics are registered, or as a consistent copy from snapshot.
+ *
+ * Every rotation is counted under the case of the search step that caused it. In the left - left case the key is smaller than
+ * the node and its left child, in the left - equal case the key matches the left child of the node, and so on.
+ * Nodes visited per search is the number of nodes whose character is compared with the key, kept in a histogram.
+ * The weighted path length is the sum of tou over all the nodes, which is the cost that the conditional rotations minimize.
+ * SelfAdjustingTernarySearchTree computes it when the metrics are attached and then adds the change of every counter update
+ * and rotation, so it is kept up to date without walking the tree. It is not maintained by TenarySearchSplayTree.
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+public class TreeMetrics implements TreeMetricsMXBean {
+
+	public static final int LEFT_LEFT = 0;
+	public static final int LEFT_RIGHT = 1;
+	public static final int RIGHT_LEFT = 2;
+	public static final int RIGHT_RIGHT = 3;
+	public static final int LEFT_EQUAL = 4;
+	public static final int RIGHT_EQUAL = 5;
+
+	//Searches visiting this many nodes or more share the last bucket of the histogram.
+	public static final int MAX_PATH_LENGTH = 64;
+
+	private final LongAdder searches = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder[] rotations = new LongAdder[6];
+	private final LongAdder[] pathLengths = new LongAdder[MAX_PATH_LENGTH+1];
+	private final LongAdder nodesVisited = new LongAdder();
+	private final AtomicLong weightedPathLength = new AtomicLong();
+
+	public TreeMetrics(){
+		for(int i = 0; i < rotations.length; i++){
+			rotations[i] = new LongAdder();
+		}
+		for(int i = 0; i < pathLengths.length; i++){
+			pathLengths[i] = new LongAdder();
+		}
+	}
+
+	/*
+	 * Registers the metrics with the platform MBean server as com.sam.trees:type=TreeMetrics,name=name.
+	 */
+	public ObjectName register(String name) throws JMException{
+		ObjectName objectName = new ObjectName("com.sam.trees:type=TreeMetrics,name="+ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+
+	void recordSearch(boolean hit, int visited){
+		searches.increment();
+		if(hit){
+			hits.increment();
+		}
+		nodesVisited.add(visited);
+		pathLengths[Math.min(visited, MAX_PATH_LENGTH)].increment();
+	}
+
+	void recordRotation(int rotationCase){
+		rotations[rotationCase].increment();
+	}
+
+	void addWeightedPathLength(long delta){
+		weightedPathLength.addAndGet(delta);
+	}
+
+	void setWeightedPathLength(long value){
+		weightedPathLength.set(value);
+	}
+
+	void scaleWeightedPathLength(double factor){
+		long current;
+		do{
+			current = weightedPathLength.get();
+		}while(!weightedPathLength.compareAndSet(current, (long)(current * factor)));
+	}
+
+	public long getSearches(){
+		return searches.sum();
+	}
+
+	public long getHits(){
+		return hits.sum();
+	}
+
+	public long getMisses(){
+		return searches.sum() - hits.sum();
+	}
+
+	public long getRotations(){
+		long total = 0;
+		for(LongAdder count : rotations){
+			total += count.sum();
+		}
+		return total;
+	}
+
+	public long getLeftLeftRotations(){
+		return rotations[LEFT_LEFT].sum();
+	}
+
+	public long getLeftRightRotations(){
+		return rotations[LEFT_RIGHT].sum();
+	}
+
+	public long getRightLeftRotations(){
+		return rotations[RIGHT_LEFT].sum();
+	}
+
+	public long getRightRightRotations(){
+		return rotations[RIGHT_RIGHT].sum();
+	}
+
+	public long getLeftEqualRotations(){
+		return rotations[LEFT_EQUAL].sum();
+	}
+
+	public long getRightEqualRotations(){
+		return rotations[RIGHT_EQUAL].sum();
+	}
+
+	public long getWeightedPathLength(){
+		return weightedPathLength.get();
+	}
+
+	public double getMeanPathLength(){
+		return snapshot().meanPathLength();
+	}
+
+	public int getMedianPathLength(){
+		return snapshot().pathLengthPercentile(0.5);
+	}
+
+	public int getPathLength99thPercentile(){
+		return snapshot().pathLengthPercentile(0.99);
+	}
+
+	public long[] getPathLengthHistogram(){
+		long[] histogram = new long[pathLengths.length];
+		for(int i = 0; i < histogram.length; i++){
+			histogram[i] = pathLengths[i].sum();
+		}
+		return histogram;
+	}
+
+	/*
+	 * Clears the counters. The weighted path length is kept as it describes the tree, not the searches.
+	 */
+	public void reset(){
+		searches.reset();
+		hits.reset();
+		nodesVisited.reset();
+		for(LongAdder count : rotations){
+			count.reset();
+		}
+		for(LongAdder count : pathLengths){
+			count.reset();
+		}
+	}
+
+	/*
+	 * Copies the current values. Counters updated while the copy is taken may be missed by some of the values.
+	 */
+	public Snapshot snapshot(){
+		long[] rotationCounts = new long[rotations.length];
+		for(int i = 0; i < rotationCounts.length; i++){
+			rotationCounts[i] = rotations[i].sum();
+		}
+		return new Snapshot(searches.sum(), hits.sum(), rotationCounts, getPathLengthHistogram(), nodesVisited.sum(), weightedPathLength.get());
+	}
+
+	/**
+	 * Values of the metrics at the time snapshot was called.
+	 */
+	public static class Snapshot {
+		private final long searches;
+		private final long hits;
+		private final long[] rotations;
+		private final long[] pathLengthHistogram;
+		private final long nodesVisited;
+		private final long weightedPathLength;
+
+		Snapshot(long searches, long hits, long[] rotations, long[] pathLengthHistogram, long nodesVisited, long weightedPathLength){
+			this.searches = searches;
+			this.hits = hits;
+			this.rotations = rotations;
+			this.pathLengthHistogram = pathLengthHistogram;
+			this.nodesVisited = nodesVisited;
+			this.weightedPathLength = weightedPathLength;
+		}
+
+		public long searches(){
+			return searches;
+		}
+
+		public long hits(){
+			return hits;
+		}
+
+		public long misses(){
+			return searches - hits;
+		}
+
+		/*
+		 * Rotations done in the given case, one of the case constants of TreeMetrics.
+		 */
+		public long rotations(int rotationCase){
+			return rotations[rotationCase];
+		}
+
+		public long rotations(){
+			long total = 0;
+			for(long count : rotations){
+				total += count;
+			}
+			return total;
+		}
+
+		/*
+		 * Number of searches which visited i nodes, for i less than MAX_PATH_LENGTH. The last bucket counts the longer searches.
+		 */
+		public long[] pathLengthHistogram(){
+			return pathLengthHistogram.clone();
+		}
+
+		public double meanPathLength(){
+			return searches == 0 ? 0 : (double)nodesVisited / searches;
+		}
+
+		/*
+		 * Smallest number of nodes visited by at least the given fraction of the searches.
+		 */
+		public int pathLengthPercentile(double fraction){
+			long total = 0;
+			for(long count : pathLengthHistogram){
+				total += count;
+			}
+			long rank = (long)Math.ceil(fraction * total);
+			long seen = 0;
+			for(int i = 0; i < pathLengthHistogram.length; i++){
+				seen += pathLengthHistogram[i];
+				if(seen >= rank && seen > 0){
+					return i;
+				}
+			}
+			return 0;
+		}
+
+		public long weightedPathLength(){
+			return weightedPathLength;
+		}
+
+		@Override
+		public String toString(){
+			return "searches="+searches+", hits="+hits+", misses="+misses()+", rotations="+Arrays.toString(rotations)
+					+", meanPathLength="+String.format("%.2f", meanPathLength())+", p50="+pathLengthPercentile(0.5)
+					+", p99="+pathLengthPercentile(0.99)+", weightedPathLength="+weightedPathLength;
+		}
+	}
+}
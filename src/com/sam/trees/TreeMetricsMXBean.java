@@ -0,0 +1,41 @@
+package com.sam.trees;
+
+/**
+ * Management interface of TreeMetrics, registered with the platform MBean server by TreeMetrics.register.
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+public interface TreeMetricsMXBean {
+
+	long getSearches();
+
+	long getHits();
+
+	long getMisses();
+
+	long getRotations();
+
+	long getLeftLeftRotations();
+
+	long getLeftRightRotations();
+
+	long getRightLeftRotations();
+
+	long getRightRightRotations();
+
+	long getLeftEqualRotations();
+
+	long getRightEqualRotations();
+
+	long getWeightedPathLength();
+
+	double getMeanPathLength();
+
+	int getMedianPathLength();
+
+	int getPathLength99thPercentile();
+
+	long[] getPathLengthHistogram();
+
+	void reset();
+}
@@ -0,0 +1,154 @@
+package com.sam.trees;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory mapped snapshot of a SelfAdjustingTernarySearchTree written by SelfAdjustingTernarySearchTree.writeSnapshot.
+ * Lookups can be served directly from the mapped file without creating any node, or the snapshot can be inflated into a live tree.
+ *
+ * Format, big endian:
+ * header - magic (int), version (int)
+ * records - one per node in post order (left subtree, right subtree, eq subtree, node), so the root is the last record
+ * and the root of the eq subtree of a node is the record just before it.
+ * record - data (char), flags (byte), alpha (int), tou (int), index of left child (int), index of right child (int), hits (int). A missing child is -1.
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+public class TreeSnapshot {
+
+	static final int MAGIC = 0x54535453;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 8;
+	static final int RECORD_SIZE = 23;
+
+	static final int LEAF = 1;
+	static final int HAS_EQ = 2;
+
+	private final ByteBuffer buffer;
+	private final int nodeCount;
+
+	private TreeSnapshot(ByteBuffer buffer){
+		this.buffer = buffer;
+		this.nodeCount = (buffer.limit() - HEADER_SIZE) / RECORD_SIZE;
+	}
+
+	/*
+	 * Maps the snapshot file read only.
+	 */
+	public static TreeSnapshot map(Path file) throws IOException{
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try{
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE){
+				throw new IOException("Snapshot "+file+" is larger than 2GB");
+			}
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			buffer.order(ByteOrder.BIG_ENDIAN);
+			if(size < HEADER_SIZE || buffer.getInt(0) != MAGIC){
+				throw new IOException(file+" is not a tree snapshot");
+			}
+			if(buffer.getInt(4) != VERSION){
+				throw new IOException("Unsupported snapshot version "+buffer.getInt(4)+" in "+file);
+			}
+			if((size - HEADER_SIZE) % RECORD_SIZE != 0){
+				throw new IOException("Truncated snapshot "+file);
+			}
+			return new TreeSnapshot(buffer);
+		}finally{
+			//The mapping stays valid after the channel is closed.
+			channel.close();
+		}
+	}
+
+	public int nodeCount(){
+		return nodeCount;
+	}
+
+	/*
+	 * Searches the key in the mapped records without modifying them, like searchWithoutSplaying.
+	 * Throws IllegalStateException if a record of a corrupt file links to a child outside the snapshot.
+	 */
+	public boolean contains(String key){
+		if(key.length() == 0){
+			return false;
+		}
+
+		int node = nodeCount-1;
+		int pos = 0;
+		while(node >= 0){
+			char c = key.charAt(pos);
+			char data = data(node);
+			if(c < data){
+				node = left(node);
+			}else if(c > data){
+				node = right(node);
+			}else{
+				if(pos == key.length()-1){
+					return isLeaf(node);
+				}
+				pos++;
+				node = hasEq(node) ? node-1 : -1;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Creates a live tree with the shape and counters of the snapshot.
+	 */
+	public SelfAdjustingTernarySearchTree inflate(){
+		return SelfAdjustingTernarySearchTree.inflate(this);
+	}
+
+	private int offset(int node){
+		return HEADER_SIZE + node * RECORD_SIZE;
+	}
+
+	char data(int node){
+		return buffer.getChar(offset(node));
+	}
+
+	boolean isLeaf(int node){
+		return (buffer.get(offset(node) + 2) & LEAF) != 0;
+	}
+
+	boolean hasEq(int node){
+		return (buffer.get(offset(node) + 2) & HAS_EQ) != 0;
+	}
+
+	int alpha(int node){
+		return buffer.getInt(offset(node) + 3);
+	}
+
+	int tou(int node){
+		return buffer.getInt(offset(node) + 7);
+	}
+
+	int hits(int node){
+		return buffer.getInt(offset(node) + 19);
+	}
+
+	int left(int node){
+		return child(node, buffer.getInt(offset(node) + 11));
+	}
+
+	int right(int node){
+		return child(node, buffer.getInt(offset(node) + 15));
+	}
+
+	/*
+	 * Checks a child index read from the file. Children are written before their parent, so a valid index is below the index of the node,
+	 * which also keeps a walk over a corrupt file from going round in a cycle.
+	 */
+	private int child(int node, int child){
+		if(child < -1 || child >= node){
+			throw new IllegalStateException("Corrupt snapshot, record "+node+" links to record "+child);
+		}
+		return child;
+	}
+}
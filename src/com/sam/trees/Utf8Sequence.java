@@ -0,0 +1,153 @@
+package com.sam.trees;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reusable CharSequence view of the UTF-8 bytes between the position and the limit of a ByteBuffer, decoded on the fly.
+ * Characters outside the basic multilingual plane are returned as surrogate pairs, like in a String. An invalid or truncated
+ * sequence is read as one U+FFFD replacement character per byte, continuation bytes are not validated.
+ * The searches of the trees read the characters in increasing order, so charAt decodes forward from the previously read character
+ * and only starts over from the position of the buffer when an earlier character is asked for.
+ * Neither the position nor the content of the buffer is changed.
+ * @author SamratK
+ * https://github.com/SamratK
+ */
+final class Utf8Sequence implements CharSequence {
+
+	private static final char REPLACEMENT = '\uFFFD';
+
+	private ByteBuffer buffer;
+	private int start;
+	private int end;
+	private int length;
+
+	//Index of the next character to decode and the position of its first byte.
+	private int nextIndex;
+	private int nextPosition;
+
+	//Low surrogate of a supplementary character whose high surrogate was the last decoded character, 0 if none.
+	private char pendingLow;
+
+	//Last decoded character and its index, since the searches ask for the same character more than once.
+	private int lastIndex;
+	private char last;
+
+	/*
+	 * Points the view to the remaining bytes of the buffer and returns it.
+	 */
+	Utf8Sequence reset(ByteBuffer buffer){
+		this.buffer = buffer;
+		start = buffer.position();
+		end = buffer.limit();
+		length = 0;
+		for(int position = start; position < end;){
+			int size = sequenceLength(position);
+			length += size == 4 ? 2 : 1;
+			position += size;
+		}
+		rewind();
+		return this;
+	}
+
+	private void rewind(){
+		nextIndex = 0;
+		nextPosition = start;
+		pendingLow = 0;
+		lastIndex = -1;
+	}
+
+	/*
+	 * Number of bytes of the sequence starting at the position, 1 for an invalid or truncated sequence.
+	 */
+	private int sequenceLength(int position){
+		int b = buffer.get(position);
+		int size;
+		if(b >= 0){
+			return 1;
+		}else if((b & 0xE0) == 0xC0){
+			size = 2;
+		}else if((b & 0xF0) == 0xE0){
+			size = 3;
+		}else if((b & 0xF8) == 0xF0){
+			size = 4;
+		}else{
+			return 1;
+		}
+		if(position + size > end){
+			return 1;
+		}
+		if(size == 4 && !Character.isSupplementaryCodePoint(codePoint(position))){
+			return 1;
+		}
+		return size;
+	}
+
+	private int codePoint(int position){
+		return ((buffer.get(position) & 0x07) << 18) | ((buffer.get(position+1) & 0x3F) << 12)
+				| ((buffer.get(position+2) & 0x3F) << 6) | (buffer.get(position+3) & 0x3F);
+	}
+
+	public int length(){
+		return length;
+	}
+
+	public char charAt(int index){
+		if(index < 0 || index >= length){
+			throw new IndexOutOfBoundsException("Index "+index+" is out of bounds for length "+length);
+		}
+		if(index == lastIndex){
+			return last;
+		}
+		if(index < nextIndex){
+			rewind();
+		}
+		while(nextIndex <= index){
+			last = decodeNext();
+		}
+		lastIndex = index;
+		return last;
+	}
+
+	private char decodeNext(){
+		nextIndex++;
+		if(pendingLow != 0){
+			char low = pendingLow;
+			pendingLow = 0;
+			nextPosition += 4;
+			return low;
+		}
+
+		int position = nextPosition;
+		int size = sequenceLength(position);
+		int b = buffer.get(position);
+		switch(size){
+		case 2:
+			nextPosition += 2;
+			return (char)(((b & 0x1F) << 6) | (buffer.get(position+1) & 0x3F));
+		case 3:
+			nextPosition += 3;
+			return (char)(((b & 0x0F) << 12) | ((buffer.get(position+1) & 0x3F) << 6) | (buffer.get(position+2) & 0x3F));
+		case 4:
+			//The position moves past the sequence when the low surrogate is decoded.
+			int codePoint = codePoint(position);
+			pendingLow = Character.lowSurrogate(codePoint);
+			return Character.highSurrogate(codePoint);
+		default:
+			nextPosition++;
+			return b >= 0 ? (char)b : REPLACEMENT;
+		}
+	}
+
+	public CharSequence subSequence(int start, int end){
+		return toString().substring(start, end);
+	}
+
+	@Override
+	public String toString(){
+		StringBuilder builder = new StringBuilder(length);
+		for(int i = 0; i < length; i++){
+			builder.append(charAt(i));
+		}
+		return builder.toString();
+	}
+}